@@ -0,0 +1,38 @@
+#!/bin/sh
+# Time to first request: starts the application several times and measures the
+# time from launch until it answers its first HTTP request, then prints the median
+# Usage: scripts/measure-startup.sh [runs] -- <command starting the application>
+#   scripts/measure-startup.sh 5 -- java -jar target/my-project-backend-0.0.1-SNAPSHOT.jar
+#   scripts/measure-startup.sh 5 -- target/fast-startup/run.sh
+# The command gets --server.port=$PORT appended (default 18080), Redis, MySQL and
+# RabbitMQ are used as configured in the active profile, compare builds on the same setup
+RUNS=5
+if [ "$1" != "--" ]; then RUNS=$1; shift; fi
+[ "$1" = "--" ] && shift
+if [ $# -eq 0 ]; then
+    echo "Usage: $0 [runs] -- <command starting the application>" >&2
+    exit 1
+fi
+PORT=${PORT:-18080}
+URL="http://localhost:$PORT/api/auth/ask-code"
+RESULTS=""
+i=1
+while [ $i -le "$RUNS" ]; do
+    START=$(date +%s%N)
+    "$@" --server.port="$PORT" > /dev/null 2>&1 &
+    PID=$!
+    while [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL")" = "000" ]; do
+        if ! kill -0 $PID 2> /dev/null; then
+            echo "Run $i: the application exited before answering" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    ELAPSED=$(( ($(date +%s%N) - START) / 1000000 ))
+    echo "Run $i: ${ELAPSED}ms"
+    RESULTS="$RESULTS $ELAPSED"
+    kill $PID
+    wait $PID 2> /dev/null
+    i=$((i + 1))
+done
+echo "$RESULTS" | tr ' ' '\n' | grep . | sort -n | awk '{ v[NR] = $1 } END { printf "Median time to first request: %dms over %d runs\n", v[int((NR + 1) / 2)], NR }'
@@ -0,0 +1,12 @@
+#!/bin/sh
+# Starts the fast-startup build from this directory with its class data archive
+# run.sh --train starts it once and writes the archive instead (done by the Maven build)
+# Any other arguments are passed on to the application
+cd "$(dirname "$0")" || exit 1
+CLASSPATH="@project.build.finalName@-app.jar:$(cat classpath)"
+if [ "$1" = "--train" ]; then
+    shift
+    rm -f app.jsa
+    exec java -XX:ArchiveClassesAtExit=app.jsa -Dspring.aot.enabled=true -Dspring.startup.training=true -cp "$CLASSPATH" com.example.MyProjectBackendApplication "$@"
+fi
+exec java -XX:SharedArchiveFile=app.jsa -Xshare:auto -Dspring.aot.enabled=true $JAVA_OPTS -cp "$CLASSPATH" com.example.MyProjectBackendApplication "$@"
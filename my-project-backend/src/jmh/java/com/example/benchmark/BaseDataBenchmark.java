@@ -0,0 +1,64 @@
+package com.example.benchmark;
+
+import com.example.entity.dto.Account;
+import com.example.entity.vo.response.AuthorizeVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO to VO conversion on the login path (Account to AuthorizeVO)
+ * Compares asViewObject (the generated mapper of the pair) with the
+ * previous per-call reflection and with a hand-written copy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BaseDataBenchmark {
+
+    Account account;
+
+    @Setup
+    public void setup() {
+        account = new Account(1, "test", "$2a$10$password", "test@example.com", "user", new Date());
+    }
+
+    @Benchmark
+    public AuthorizeVO asViewObject() {
+        return account.asViewObject(AuthorizeVO.class);
+    }
+
+    @Benchmark
+    public AuthorizeVO reflection() throws ReflectiveOperationException {
+        return reflectiveCopy(account, AuthorizeVO.class);
+    }
+
+    @Benchmark
+    public AuthorizeVO handWritten() {
+        AuthorizeVO vo = new AuthorizeVO();
+        vo.setUsername(account.getUsername());
+        vo.setRole(account.getRole());
+        return vo;
+    }
+
+    /**
+     * The reflective conversion BaseData used before, kept as the baseline
+     */
+    static <V> V reflectiveCopy(Object source, Class<V> clazz) throws ReflectiveOperationException {
+        V v = clazz.getConstructor().newInstance();
+        for (Field field : clazz.getDeclaredFields()) {
+            try {
+                Field sourceField = source.getClass().getDeclaredField(field.getName());
+                field.setAccessible(true);
+                sourceField.setAccessible(true);
+                field.set(v, sourceField.get(source));
+            } catch (IllegalAccessException | NoSuchFieldException ignored) {}
+        }
+        return v;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.benchmark;
+
+import com.example.utils.FlowUtils;
+import com.example.utils.RedisKeys;
+import com.example.utils.RedisTrackingCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit checks against an in-process Redis
+ * periodCheck is the previous per-request check of the flow limiting filter
+ * with a limit that is never reached, quotas is the current one on four
+ * dimensions in one script call, with fixed windows and with GCRA, onceCheck
+ * is the verification code cool down on a key that is already blocked
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowUtilsBenchmark {
+
+    RedisFixture redis;
+    FlowUtils utils;
+    List<FlowUtils.Quota> quotas;
+    List<FlowUtils.Quota> gcraQuotas;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = new RedisFixture();
+        utils = new FlowUtils();
+        ReflectionTestUtils.setField(utils, "template", redis.template());
+        ReflectionTestUtils.setField(utils, "keys", RedisKeys.text());
+        ReflectionTestUtils.setField(utils, "tracking", new RedisTrackingCache(1000, 60_000));
+        quotas = List.of(
+                new FlowUtils.Quota("global", Integer.MAX_VALUE, 1, 0),
+                new FlowUtils.Quota("ip:127.0.0.1/32", Integer.MAX_VALUE, 3, 30),
+                new FlowUtils.Quota("user:1", Integer.MAX_VALUE, 3, 30),
+                new FlowUtils.Quota("route:/api/auth/login:user:1", Integer.MAX_VALUE, 60, 300));
+        gcraQuotas = quotas.stream()
+                .map(quota -> new FlowUtils.Quota("gcra:" + quota.key(), 1_000_000, quota.period(), quota.block(), FlowUtils.Algorithm.GCRA))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        redis.stop();
+    }
+
+    @Benchmark
+    public boolean periodCheck() {
+        return utils.limitPeriodCheck("benchmark:counter", "benchmark:block", 30, Integer.MAX_VALUE, 3);
+    }
+
+    @Benchmark
+    public FlowUtils.Decision quotas() {
+        return utils.checkQuotas(quotas);
+    }
+
+    @Benchmark
+    public FlowUtils.Decision quotasGcra() {
+        return utils.checkQuotas(gcraQuotas);
+    }
+
+    @Benchmark
+    public boolean onceCheck() {
+        return utils.limitOnceCheck("benchmark:once", 60);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean periodCheck8() {
+        return utils.limitPeriodCheck("benchmark:counter", "benchmark:block", 30, Integer.MAX_VALUE, 3);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.benchmark;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.utils.FlowUtils;
+import com.example.utils.JwtUtils;
+import com.example.utils.RedisKeys;
+import com.example.utils.RedisTrackingCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The authentication hot path: issuing a token on login, resolving it
+ * on every authenticated request and turning the claims into UserDetails
+ * createJwt and resolveJwt include their Redis round trips (frequency
+ * check, blacklist lookup), toUser is pure CPU
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    RedisFixture redis;
+    JwtUtils utils;
+    UserDetails user;
+    String header;
+    DecodedJWT jwt;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = new RedisFixture();
+        FlowUtils flow = new FlowUtils();
+        ReflectionTestUtils.setField(flow, "template", redis.template());
+        ReflectionTestUtils.setField(flow, "keys", RedisKeys.text());
+        ReflectionTestUtils.setField(flow, "tracking", new RedisTrackingCache(1000, 60_000));
+        utils = new JwtUtils();
+        ReflectionTestUtils.setField(utils, "template", redis.template());
+        ReflectionTestUtils.setField(utils, "keys", RedisKeys.text());
+        ReflectionTestUtils.setField(utils, "tracking", new RedisTrackingCache(1000, 60_000));
+        ReflectionTestUtils.setField(utils, "utils", flow);
+        ReflectionTestUtils.setField(utils, "key", "abcdefghijklmn");
+        ReflectionTestUtils.setField(utils, "expire", 72);
+        ReflectionTestUtils.setField(utils, "limit_base", 10);
+        ReflectionTestUtils.setField(utils, "limit_upgrade", 300);
+        // Never trip the login frequency check, every call should sign a token
+        ReflectionTestUtils.setField(utils, "limit_frequency", Integer.MAX_VALUE);
+        user = User.withUsername("test").password("******").roles("user").build();
+        header = "Bearer " + utils.createJwt(user, "test", 1);
+        jwt = utils.resolveJwt(header);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        redis.stop();
+    }
+
+    @Benchmark
+    public String createJwt() {
+        return utils.createJwt(user, "test", 1);
+    }
+
+    @Benchmark
+    public DecodedJWT resolveJwt() {
+        return utils.resolveJwt(header);
+    }
+
+    @Benchmark
+    public UserDetails toUser() {
+        return utils.toUser(jwt);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.benchmark;
+
+import com.example.entity.RestBean;
+import com.example.entity.vo.response.AuthorizeVO;
+import com.example.utils.RestBeanHttpMessageConverter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing controller results through the fastjson2 RestBean converter
+ * and through the Jackson converter Spring MVC used before
+ * Run with -prof gc to see the bytes allocated per response
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+    RestBeanHttpMessageConverter fastjson;
+    MappingJackson2HttpMessageConverter jackson;
+    RestBean<AuthorizeVO> login;
+    RestBean<Void> failure;
+    HttpOutputMessage message;
+
+    @Setup
+    public void setup() {
+        fastjson = new RestBeanHttpMessageConverter();
+        jackson = new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+        AuthorizeVO vo = new AuthorizeVO();
+        vo.setUsername("test");
+        vo.setRole("user");
+        vo.setToken("eyJ0eXAiOiJKV1QiLCJhbGciOiJIUzI1NiJ9.eyJpZCI6MSwibmFtZSI6InRlc3QifQ.signature");
+        vo.setExpire(new Date());
+        login = new RestBean<>(1787654321098765432L, 200, vo, "Request successful");
+        failure = new RestBean<>(1787654321098765432L, 400, null, "Invalid request parameters");
+        message = new DiscardingOutputMessage();
+    }
+
+    @Benchmark
+    public void fastjsonLogin() throws IOException {
+        fastjson.write(login, MediaType.APPLICATION_JSON, message);
+    }
+
+    @Benchmark
+    public void jacksonLogin() throws IOException {
+        jackson.write(login, MediaType.APPLICATION_JSON, message);
+    }
+
+    @Benchmark
+    public void fastjsonFailure() throws IOException {
+        fastjson.write(failure, MediaType.APPLICATION_JSON, message);
+    }
+
+    @Benchmark
+    public void jacksonFailure() throws IOException {
+        jackson.write(failure, MediaType.APPLICATION_JSON, message);
+    }
+
+    /**
+     * Response message that throws the body away, headers are reset for every write
+     */
+    static class DiscardingOutputMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        public OutputStream getBody() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            headers.clear();
+            return headers;
+        }
+    }
+}
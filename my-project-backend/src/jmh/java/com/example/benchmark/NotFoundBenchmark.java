@@ -0,0 +1,72 @@
+package com.example.benchmark;
+
+import com.example.MyProjectBackendApplication;
+import com.github.fppt.jedismock.RedisServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scanner hitting unknown URLs against the running application on Tomcat
+ * The URLs are under the permitAll /api/auth/** paths, elsewhere an unknown
+ * URL is answered with 401 by the security entry point before Spring MVC
+ * "inline" is the current setup, answered by the global exception handler,
+ * "dispatch" restores the previous error dispatch to the error controller
+ * Redis is served by jedis-mock, the flow limit is raised so nothing is blocked
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    @Param({"inline", "dispatch"})
+    String mode;
+
+    RedisServer redis;
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redis = RedisServer.newRedisServer();
+        redis.start();
+        boolean inline = mode.equals("inline");
+        context = new SpringApplicationBuilder(MyProjectBackendApplication.class).run(
+                "--spring.profiles.active=dev",
+                "--server.port=0",
+                "--spring.data.redis.host=" + redis.getHost(),
+                "--spring.data.redis.port=" + redis.getBindPort(),
+                "--spring.rabbitmq.listener.simple.auto-startup=false",
+                "--spring.web.flow.limit=100000000",
+                "--logging.level.root=WARN",
+                "--spring.mvc.throw-exception-if-no-handler-found=" + inline,
+                "--spring.web.resources.add-mappings=" + !inline);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/wp-login.php")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int notFound() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.benchmark;
+
+import com.example.utils.InstrumentedRedisTemplate;
+import com.example.utils.RedisCommandMetrics;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+
+/**
+ * In-process Redis for benchmarks without the application context
+ * jedis-mock behind the same instrumented template the application uses,
+ * absolute numbers include a local socket round trip per command
+ */
+final class RedisFixture {
+
+    private final RedisServer server;
+    private final LettuceConnectionFactory factory;
+    private final StringRedisTemplate template;
+
+    RedisFixture() throws IOException {
+        this(null);
+    }
+
+    /**
+     * @param resources the client resources of the connection, null for the defaults
+     */
+    RedisFixture(ClientResources resources) throws IOException {
+        server = RedisServer.newRedisServer();
+        server.start();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder();
+        if(resources != null) client.clientResources(resources);
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()), client.build());
+        factory.afterPropertiesSet();
+        template = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()));
+    }
+
+    StringRedisTemplate template() {
+        return template;
+    }
+
+    void stop() throws IOException {
+        factory.destroy();
+        server.stop();
+    }
+}
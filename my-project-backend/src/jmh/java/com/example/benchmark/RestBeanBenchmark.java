@@ -0,0 +1,58 @@
+package com.example.benchmark;
+
+import com.example.entity.RestBean;
+import com.example.entity.StaticResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the 403 body of a blocked request into the response
+ * Compares the previous string through a PrintWriter, streaming the
+ * RestBean as UTF-8 and the pre-encoded StaticResponse
+ * Run with -prof gc to see the bytes allocated per response
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestBeanBenchmark {
+
+    private static final String MESSAGE = "Too many requests, please try again later";
+
+    OutputStream out;
+    PrintWriter writer;
+    StaticResponse response;
+    long id;
+
+    @Setup
+    public void setup() {
+        out = OutputStream.nullOutputStream();
+        writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        response = StaticResponse.forbidden(MESSAGE);
+        id = 1787654321098765432L;
+    }
+
+    @Benchmark
+    public void asJsonString() {
+        writer.write(new RestBean<>(id, 403, null, MESSAGE).asJsonString());
+        writer.flush();
+    }
+
+    @Benchmark
+    public void writeTo() {
+        new RestBean<>(id, 403, null, MESSAGE).writeTo(out);
+    }
+
+    @Benchmark
+    public void staticResponse() throws IOException {
+        out.write(response.encode(id));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.benchmark;
+
+import com.example.utils.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the CAS based generator with the previous synchronized
+ * implementation at increasing thread counts
+ * Both are capped at 4096 IDs per millisecond, so beyond that point
+ * the numbers show how cheaply each one waits for the next millisecond
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnowflakeIdGeneratorBenchmark {
+
+    SnowflakeIdGenerator lockFree;
+    SynchronizedGenerator synchronizedGenerator;
+
+    @Setup
+    public void setup() {
+        lockFree = new SnowflakeIdGenerator();
+        synchronizedGenerator = new SynchronizedGenerator();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long lockFree1() {
+        return lockFree.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long lockFree4() {
+        return lockFree.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long lockFree16() {
+        return lockFree.nextId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long lockFree64() {
+        return lockFree.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long buffered1() {
+        return lockFree.nextBufferedId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long buffered64() {
+        return lockFree.nextBufferedId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public SnowflakeIdGenerator.IdBlock reserve64() {
+        return lockFree.reserve(64);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long synchronized1() {
+        return synchronizedGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long synchronized4() {
+        return synchronizedGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long synchronized16() {
+        return synchronizedGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long synchronized64() {
+        return synchronizedGenerator.nextId();
+    }
+
+    /**
+     * The monitor based generator this project used before, kept as the baseline
+     */
+    static class SynchronizedGenerator {
+        private static final long START_TIMESTAMP = 1691087910202L;
+        private static final long MAX_SEQUENCE = ~(-1L << 12);
+
+        private long lastTimestamp = -1L;
+        private long sequence = 0L;
+
+        synchronized long nextId() {
+            long timestamp = System.currentTimeMillis();
+            if (timestamp < lastTimestamp) {
+                throw new IllegalStateException("Clock moved backwards. Refusing to generate ID.");
+            }
+            if (timestamp == lastTimestamp) {
+                sequence = (sequence + 1) & MAX_SEQUENCE;
+                if (sequence == 0) {
+                    while (timestamp <= lastTimestamp) {
+                        timestamp = System.currentTimeMillis();
+                    }
+                }
+            } else {
+                sequence = 0L;
+            }
+            lastTimestamp = timestamp;
+            return ((timestamp - START_TIMESTAMP) << 22) | (1L << 17) | (1L << 12) | sequence;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.load;
+
+import com.example.utils.RedisTrackingCache;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the client-side cache against a real Redis, jedis-mock only speaks
+ * RESP2 and has no client tracking. A key written through another connection
+ * must be dropped from the cache by the invalidation Redis pushes.
+ * Skipped unless -Dtracking.redis=host:port is given
+ */
+@Tag("load")
+class ClientTrackingVerification {
+
+    @Test
+    void invalidatesKeysWrittenElsewhere() throws InterruptedException {
+        String address = System.getProperty("tracking.redis");
+        Assumptions.assumeTrue(address != null, "Set -Dtracking.redis=host:port to verify client tracking");
+        RedisClient client = RedisClient.create("redis://" + address);
+        RedisTrackingCache cache = new RedisTrackingCache(1000, 60_000);
+        try (StatefulRedisConnection<String, String> writer = client.connect()) {
+            cache.connect(client, "verify:tracking:");
+            assertTrue(cache.isActive(), "Client tracking could not be enabled");
+            String key = "verify:tracking:" + UUID.randomUUID();
+            assertFalse(cache.exists(key, "", Long.MAX_VALUE, () -> writer.sync().exists(key) > 0));
+            assertFalse(cache.exists(key, "", Long.MAX_VALUE, () -> fail("Should be served from the cache")));
+            assertEquals(1, cache.hits());
+            writer.sync().set(key, "1", SetArgs.Builder.px(10_000));
+            for (int i = 0; i < 100 && cache.get(key, "") != null; i++) Thread.sleep(20);
+            assertNull(cache.get(key, ""), "No invalidation arrived");
+            assertTrue(cache.invalidations() > 0);
+            assertTrue(cache.exists(key, "", Long.MAX_VALUE, () -> writer.sync().exists(key) > 0));
+        } finally {
+            cache.close();
+            client.shutdown();
+        }
+    }
+}
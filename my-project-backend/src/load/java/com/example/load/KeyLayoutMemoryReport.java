@@ -0,0 +1,147 @@
+package com.example.load;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import com.example.utils.FlowUtils;
+import com.example.utils.RedisKeys;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares the Redis memory used by the text and the compact key layout on
+ * a synthetic data set, per client a fixed window counter for its address and
+ * its user, a blacklisted token and a verification code with its cool down
+ * Needs a real Redis, jedis-mock does not account for memory, and an empty
+ * database on it, which is flushed after each layout. Skipped unless
+ * -Dmemory.redis=host:port is given, tuned with -Dmemory.db (15),
+ * -Dmemory.clients (1000000), -Dmemory.buckets (256) and -Dmemory.result
+ */
+@Tag("load")
+class KeyLayoutMemoryReport {
+
+    private static final int BATCH = 10_000;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void compareLayouts() throws Exception {
+        String address = System.getProperty("memory.redis");
+        Assumptions.assumeTrue(address != null, "Set -Dmemory.redis=host:port to run the memory report");
+        int clients = Integer.getInteger("memory.clients", 1_000_000);
+        int buckets = Integer.getInteger("memory.buckets", 256);
+        String[] hostPort = address.split(":");
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(hostPort[0], Integer.parseInt(hostPort[1]));
+        configuration.setDatabase(Integer.getInteger("memory.db", 15));
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration);
+        factory.afterPropertiesSet();
+        try {
+            StringRedisTemplate template = new StringRedisTemplate(factory);
+            assertEquals(0L, template.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize()), "The report database must be empty");
+            JSONObject report = JSONObject.of("clients", clients, "buckets", buckets);
+            List<String> lines = new ArrayList<>();
+            lines.add(String.format("%-12s %-8s %14s %14s", "data", "layout", "bytes", "per client"));
+            for (String category : List.of("counters", "blacklist", "verify")) {
+                JSONObject row = new JSONObject();
+                for (RedisKeys keys : List.of(RedisKeys.text(), RedisKeys.compact(buckets))) {
+                    String layout = keys.isCompact() ? "compact" : "text";
+                    long before = usedMemory(template);
+                    this.write(template, keys, category, clients);
+                    long bytes = usedMemory(template) - before;
+                    template.execute((RedisCallback<Object>) connection -> {
+                        connection.serverCommands().flushDb();
+                        return null;
+                    });
+                    row.put(layout, bytes);
+                    lines.add(String.format("%-12s %-8s %14d %14.1f", category, layout, bytes, (double) bytes / clients));
+                }
+                report.put(category, row);
+            }
+            System.out.println(String.join(System.lineSeparator(), lines));
+            Path result = Path.of(System.getProperty("memory.result", "target/key-layout-memory.json"));
+            Files.createDirectories(result.toAbsolutePath().getParent());
+            Files.writeString(result, JSON.toJSONString(report, JSONWriter.Feature.PrettyFormat));
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    /**
+     * Writes one category of the data set the way the application does in the given layout
+     */
+    private void write(StringRedisTemplate template, RedisKeys keys, String category, int clients) {
+        Random random = new Random(clients);
+        long now = System.currentTimeMillis();
+        for (int from = 0; from < clients; from += BATCH) {
+            int start = from, end = Math.min(clients, from + BATCH);
+            template.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = start; i < end; i++) {
+                    switch (category) {
+                        case "counters" -> {
+                            String ip = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255) + "/32";
+                            byte[] network = raw(keys.flowCounter(FlowUtils.Algorithm.FIXED_WINDOW.stateKey("ip:" + ip)));
+                            byte[] user = raw(keys.flowCounter(FlowUtils.Algorithm.FIXED_WINDOW.stateKey("user:" + i)));
+                            connection.stringCommands().set(network, raw("7"));
+                            connection.keyCommands().expire(network, 3600);
+                            connection.stringCommands().set(user, raw("7"));
+                            connection.keyCommands().expire(user, 3600);
+                        }
+                        case "blacklist" -> {
+                            // Tokens expire evenly over the next 72 hours
+                            String uuid = new UUID(random.nextLong(), random.nextLong()).toString();
+                            long expiration = now + (long) (random.nextDouble() * 72 * HOUR);
+                            byte[] key = raw(keys.blacklist(uuid, expiration));
+                            if (keys.isCompact()) {
+                                connection.hashCommands().hSet(key, RedisKeys.tokenId(uuid), new byte[0]);
+                                connection.keyCommands().pExpireAt(key, RedisKeys.blacklistExpiration(keys.blacklist(uuid, expiration)));
+                            } else {
+                                connection.stringCommands().set(key, raw(String.valueOf(expiration)));
+                                connection.keyCommands().pExpireAt(key, expiration);
+                            }
+                        }
+                        default -> {
+                            String email = "user" + i + "@example.com";
+                            connection.stringCommands().set(raw(keys.verifyData(email)), raw(String.valueOf(100000 + i % 900000)));
+                            connection.keyCommands().expire(raw(keys.verifyData(email)), 180);
+                            // The cool down as a sliding log of one request
+                            byte[] limit = raw(FlowUtils.Algorithm.SLIDING_LOG.stateKey(
+                                    keys.verifyLimit("10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255))));
+                            connection.zSetCommands().zAdd(limit, now, raw(now + "-0"));
+                            connection.keyCommands().pExpire(limit, 60_000);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    private static long usedMemory(StringRedisTemplate template) {
+        Properties info = template.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        assertNotNull(info);
+        String used = info.getProperty("used_memory");
+        assertNotNull(used, "INFO memory did not report used_memory");
+        return Long.parseLong(used);
+    }
+
+    private static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and error counts of one load run, per flow
+ * Latencies are recorded in microseconds, failed requests are counted
+ * as errors and left out of the histograms
+ */
+final class LoadReport {
+
+    /**
+     * The request types a virtual user sends
+     */
+    enum Flow {
+        ASK_CODE("ask-code"),
+        REGISTER("register"),
+        LOGIN("login"),
+        AUTHENTICATED_GET("authenticated-get"),
+        LOGOUT("logout");
+
+        final String label;
+
+        Flow(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Summary of one flow, percentiles and maximum in milliseconds
+     */
+    record FlowResult(String flow, long requests, long errors, double throughput,
+                      double p50, double p99, double p999, double max) {}
+
+    private final Map<Flow, Histogram> latencies = new EnumMap<>(Flow.class);
+    private final Map<Flow, LongAdder> errors = new EnumMap<>(Flow.class);
+
+    LoadReport() {
+        for (Flow flow : Flow.values()) {
+            latencies.put(flow, new ConcurrentHistogram(3));
+            errors.put(flow, new LongAdder());
+        }
+    }
+
+    void record(Flow flow, long nanos, boolean success) {
+        if(success)
+            latencies.get(flow).recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+        else
+            errors.get(flow).increment();
+    }
+
+    long errors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @param elapsed the measured duration of the run
+     * @return one result per flow
+     */
+    List<FlowResult> results(Duration elapsed) {
+        List<FlowResult> results = new ArrayList<>();
+        double seconds = elapsed.toNanos() / 1e9;
+        for (Flow flow : Flow.values()) {
+            Histogram histogram = latencies.get(flow);
+            long failed = errors.get(flow).sum();
+            long requests = histogram.getTotalCount() + failed;
+            results.add(new FlowResult(flow.label, requests, failed, requests / seconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())));
+        }
+        return results;
+    }
+
+    /**
+     * @param results the results of the run
+     * @return the results as a plain text table
+     */
+    static String table(List<FlowResult> results) {
+        StringBuilder builder = new StringBuilder(String.format("%-18s %9s %7s %10s %9s %9s %9s %9s%n",
+                "flow", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (FlowResult result : results) {
+            builder.append(String.format("%-18s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    result.flow(), result.requests(), result.errors(), result.throughput(),
+                    result.p50(), result.p99(), result.p999(), result.max()));
+        }
+        return builder.toString();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.load;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import com.example.load.LoadReport.Flow;
+import com.example.utils.LoginAudit;
+import com.example.utils.RedisKeys;
+import com.example.utils.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the full application with virtual users, each one repeatedly runs a
+ * session of ask-code, register, login, a number of authenticated GETs and logout
+ * Every session comes from its own client address, so the per-address
+ * limits behave as they would with many real clients
+ * Tuned with -Dload.users, -Dload.duration and -Dload.warmup (seconds),
+ * -Dload.reads (authenticated GETs per session) and -Dload.result (JSON report path)
+ */
+@Tag("load")
+// Keeps a meter registry, so the run can report how the concurrency limits moved
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.forward-headers-strategy=native",
+        // Makes /actuator/health/ping reachable, the authenticated GET of a session
+        "management.endpoint.health.show-components=always",
+        // The stand-in schema has the audit tables
+        "spring.security.audit.enabled=true",
+        "logging.level.root=WARN"
+})
+class LoadTests {
+
+    static StandIns standIns;
+
+    @LocalServerPort
+    int port;
+
+    @Resource
+    StringRedisTemplate template;
+
+    @Resource
+    RedisKeys keys;
+
+    @Resource
+    DataSource dataSource;
+
+    @Resource
+    LoginAudit audit;
+
+    @Resource
+    MeterRegistry registry;
+
+    final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    final AtomicLong sessions = new AtomicLong();
+    final AtomicInteger mailsRequested = new AtomicInteger();
+
+    @DynamicPropertySource
+    static void standInProperties(DynamicPropertyRegistry registry) throws Exception {
+        standIns = StandIns.start();
+        standIns.register(registry);
+    }
+
+    @Test
+    void mixedTraffic() throws Exception {
+        int users = Integer.getInteger("load.users", 16);
+        int reads = Integer.getInteger("load.reads", 10);
+        run(users, reads, Duration.ofSeconds(Long.getLong("load.warmup", 10)), new LoadReport());
+        LoadReport report = new LoadReport();
+        Duration elapsed = run(users, reads, Duration.ofSeconds(Long.getLong("load.duration", 30)), report);
+        List<LoadReport.FlowResult> results = report.results(elapsed);
+        System.out.printf("%nLoad test: %d users, %d authenticated GETs per session, %.1f s%n%s%n",
+                users, reads, elapsed.toMillis() / 1000.0, LoadReport.table(results));
+        // The run goes through the adaptive limits with their configured defaults
+        for (String budget : List.of("general", "login")) {
+            System.out.printf("Concurrency limit %s: %.0f, rejected %.0f%n", budget,
+                    registry.get("http.server.concurrency.limit").tag("budget", budget).gauge().value(),
+                    registry.get("http.server.concurrency.rejected").tag("budget", budget).counter().count());
+        }
+        Path path = Path.of(System.getProperty("load.result", "target/load-report.json"));
+        Files.writeString(path, JSON.toJSONString(results, JSONWriter.Feature.PrettyFormat));
+        assertEquals(0, report.errors(), "Requests failed during the load run");
+        assertTrue(dataSource instanceof ReplicaRoutingDataSource routing && routing.replicaConnections() > 0,
+                "Account lookups did not reach the replica");
+        audit.flush();
+        assertTrue(audit.written() > 0 && audit.failed() == 0 && audit.dropped() == 0, "Logins were not audited");
+        awaitMails(mailsRequested.get());
+    }
+
+    /**
+     * Runs the virtual users until the duration is over and waits for their current sessions
+     * @return the time from start until the last session ended
+     */
+    private Duration run(int users, int reads, Duration duration, LoadReport report) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            pool.execute(() -> {
+                while (System.nanoTime() < deadline) session(reads, report);
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS), "Virtual users did not finish");
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * One user from a fresh address, a failed step ends the session
+     */
+    private void session(int reads, LoadReport report) {
+        long n = sessions.incrementAndGet();
+        // Fixed-width digits, GreenMail keys mailboxes by the hash code of the address
+        // and shorter names such as u1n and u30 collide
+        String username = String.format("u%09d", n);
+        String email = username + "@load.test";
+        String address = "10." + (n >> 16 & 255) + "." + (n >> 8 & 255) + "." + (n & 255);
+        if(send(report, Flow.ASK_CODE, request(address, "/api/auth/ask-code?type=register&email=" + encode(email)).GET()) == null)
+            return;
+        mailsRequested.incrementAndGet();
+        String code = template.opsForValue().get(keys.verifyData(email));
+        JSONObject account = JSONObject.of("username", username, "password", "password", "email", email, "code", code);
+        if(send(report, Flow.REGISTER, request(address, "/api/auth/register")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(account.toJSONString()))) == null)
+            return;
+        JSONObject login = send(report, Flow.LOGIN, request(address, "/api/auth/login")
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + username + "&password=password")));
+        if(login == null) return;
+        String authorization = "Bearer " + login.getJSONObject("data").getString("token");
+        for (int i = 0; i < reads; i++) {
+            if(send(report, Flow.AUTHENTICATED_GET, request(address, "/actuator/health/ping")
+                    .header("Authorization", authorization).GET()) == null)
+                return;
+        }
+        send(report, Flow.LOGOUT, request(address, "/api/auth/logout")
+                .header("Authorization", authorization).GET());
+    }
+
+    /**
+     * Sends the request and records its latency
+     * @return the JSON body, or null if the request failed
+     */
+    private JSONObject send(LoadReport report, Flow flow, HttpRequest.Builder builder) {
+        long start = System.nanoTime();
+        JSONObject body = null;
+        try {
+            HttpResponse<String> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            if(response.statusCode() == 200) {
+                body = JSON.parseObject(response.body());
+                // RestBean carries its own code, the actuator answers with a plain status
+                if(body.containsKey("code") && body.getIntValue("code") != 200) body = null;
+            }
+        } catch (Exception ignored) {}
+        report.record(flow, System.nanoTime() - start, body != null);
+        return body;
+    }
+
+    private HttpRequest.Builder request(String address, String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("X-Forwarded-For", address)
+                .timeout(Duration.ofSeconds(30));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private void awaitMails(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (standIns.receivedMails() < expected && System.nanoTime() < deadline) Thread.sleep(100);
+        assertEquals(expected, standIns.receivedMails(), "Not every verification code reached the SMTP server");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.load;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-process replacements for the external services of the application
+ * H2 in MySQL mode for the database, jedis-mock for Redis, an embedded
+ * Qpid broker speaking AMQP 0-9-1 for RabbitMQ and GreenMail as the SMTP server
+ * They run until the JVM exits, the cached application context still uses them while shutting down
+ */
+final class StandIns {
+
+    private static final String MAIL_USER = "load@example.com";
+    private static final String BROKER_USER = "load";
+    private static final String PASSWORD = "load";
+
+    private final RedisServer redis;
+    private final GreenMail mail;
+    private final int amqpPort;
+
+    private StandIns(RedisServer redis, int amqpPort, GreenMail mail) {
+        this.redis = redis;
+        this.amqpPort = amqpPort;
+        this.mail = mail;
+    }
+
+    /**
+     * Starts all stand-ins on free local ports
+     * @return the running stand-ins
+     * @throws Exception if one of them cannot be started
+     */
+    static StandIns start() throws Exception {
+        RedisServer redis = RedisServer.newRedisServer();
+        redis.start();
+        int amqpPort = freePort();
+        SystemLauncher broker = new SystemLauncher();
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION, Objects.requireNonNull(
+                StandIns.class.getResource("/load/qpid-config.json")).toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(SystemConfig.CONTEXT, Map.of(
+                "qpid.amqp_port", amqpPort,
+                "qpid.user", BROKER_USER,
+                "qpid.password", PASSWORD,
+                "qpid.work_dir", "target/qpid-work"));
+        broker.startup(attributes);
+        GreenMail mail = new GreenMail(new ServerSetup(freePort(), "localhost", ServerSetup.PROTOCOL_SMTP));
+        mail.setUser(MAIL_USER, MAIL_USER, PASSWORD);
+        mail.start();
+        return new StandIns(redis, amqpPort, mail);
+    }
+
+    /**
+     * Points the application at the stand-ins
+     * @param registry the test property registry
+     */
+    void register(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        registry.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.datasource.password", () -> "");
+        // The same database as a replica without lag, so reads take the routed path
+        registry.add("spring.datasource.routing.replicas", () -> "jdbc:h2:mem:load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        registry.add("spring.sql.init.mode", () -> "always");
+        registry.add("spring.sql.init.schema-locations", () -> "classpath:load/schema.sql");
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getBindPort);
+        // jedis-mock runs scripts one at a time in an interpreter, under load it is far
+        // slower than Redis and would trip the circuit breaker with the configured timeout
+        registry.add("spring.data.redis.timeout", () -> "10s");
+        registry.add("spring.rabbitmq.addresses", () -> "localhost:" + amqpPort);
+        registry.add("spring.rabbitmq.username", () -> BROKER_USER);
+        registry.add("spring.rabbitmq.password", () -> PASSWORD);
+        registry.add("spring.rabbitmq.virtual-host", () -> "default");
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", () -> mail.getSmtp().getPort());
+        registry.add("spring.mail.username", () -> MAIL_USER);
+        registry.add("spring.mail.password", () -> PASSWORD);
+    }
+
+    /**
+     * @return the number of mails the SMTP server has received so far
+     */
+    int receivedMails() {
+        return mail.getReceivedMessages().length;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+CREATE TABLE IF NOT EXISTS db_account (
+    id            INT          NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    username      VARCHAR(255) NOT NULL,
+    password      VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    role          VARCHAR(255) NOT NULL,
+    register_time DATETIME     NOT NULL,
+    UNIQUE KEY unique_name (username),
+    UNIQUE KEY unique_email (email)
+);
+
+CREATE TABLE IF NOT EXISTS db_login_audit (
+    id         BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    account_id INT          NULL,
+    username   VARCHAR(255) NOT NULL,
+    address    VARCHAR(64)  NOT NULL,
+    success    BOOLEAN      NOT NULL,
+    login_time DATETIME(3)  NOT NULL,
+    KEY index_account_time (account_id, login_time)
+);
+
+CREATE TABLE IF NOT EXISTS db_account_login (
+    account_id    INT         NOT NULL PRIMARY KEY,
+    login_time    DATETIME(3) NOT NULL,
+    login_address VARCHAR(64) NOT NULL
+);
@@ -0,0 +1,58 @@
+package com.example.config;
+
+import com.example.mapper.LoginAuditMapper;
+import com.example.utils.LoginAudit;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Login audit, written in the background so logins do not wait for the database
+ */
+@Configuration
+public class AuditConfiguration {
+
+    /**
+     * Buffers login attempts and writes them in batches. It depends on the mapper and
+     * so on the data source, which is therefore closed after the buffer was written.
+     * The buffer is published as the "login.audit.pending" gauge and the outcome as the
+     * "login.audit.records" counter by result
+     * @param mapper the mapper writing the batches
+     * @param registry the meter registry
+     * @param enabled whether attempts are recorded, needs the audit tables
+     * @param capacity the attempts buffered at most, further ones are dropped
+     * @param batchSize the attempts written in one statement at most
+     * @param flushInterval the time between writes of a partial batch
+     * @return the login audit
+     */
+    @Bean(destroyMethod = "close")
+    public LoginAudit loginAudit(LoginAuditMapper mapper, MeterRegistry registry,
+                                 @Value("${spring.security.audit.enabled:false}") boolean enabled,
+                                 @Value("${spring.security.audit.capacity:10000}") int capacity,
+                                 @Value("${spring.security.audit.batch-size:500}") int batchSize,
+                                 @Value("${spring.security.audit.flush-interval:1s}") Duration flushInterval) {
+        LoginAudit audit = new LoginAudit(mapper, capacity, batchSize);
+        Gauge.builder("login.audit.pending", audit, LoginAudit::pending)
+                .description("Login attempts waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("login.audit.records", audit, LoginAudit::written)
+                .description("Login attempts by what became of them")
+                .tag("result", "written")
+                .register(registry);
+        FunctionCounter.builder("login.audit.records", audit, LoginAudit::dropped)
+                .description("Login attempts by what became of them")
+                .tag("result", "dropped")
+                .register(registry);
+        FunctionCounter.builder("login.audit.records", audit, LoginAudit::failed)
+                .description("Login attempts by what became of them")
+                .tag("result", "failed")
+                .register(registry);
+        if(enabled) audit.start(flushInterval.toMillis());
+        return audit;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.config;
+
+import com.example.utils.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write split of the database, only active if replicas are configured,
+ * otherwise the auto-configured data source is used as before
+ */
+@Configuration
+@ConditionalOnProperty("spring.datasource.routing.replicas")
+public class DataSourceConfiguration {
+
+    /**
+     * Routes reads marked with {@link ReplicaRoutingDataSource#onReplica} to the replicas
+     * and everything else to the primary. Each pool is a Hikari pool configured by
+     * spring.datasource.hikari and publishes the hikaricp metrics under its own pool
+     * name, the routing is published as the "db.routing.connections" counter by target
+     * and the replicas as the "db.replica.up" and "db.replica.lag" gauges
+     * @param properties the primary's connection properties, also used for the replicas' credentials
+     * @param environment the environment, for the pool settings
+     * @param registry the meter registry
+     * @param urls the JDBC URLs of the replicas
+     * @param maxLag the replication lag tolerated before reads go to the primary
+     * @param checkInterval the time between replica checks
+     * @param lagQuery a query returning a replica's lag in seconds, empty to only check that it answers
+     * @return the routing data source
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+                                               @Value("${spring.datasource.routing.replicas}") String[] urls,
+                                               @Value("${spring.datasource.routing.max-lag:2s}") Duration maxLag,
+                                               @Value("${spring.datasource.routing.check-interval:5s}") Duration checkInterval,
+                                               @Value("${spring.datasource.routing.lag-query:}") String lagQuery) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(registry);
+        HikariDataSource primary = this.pool(properties, properties.determineUrl(), "primary", environment, metrics);
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            String name = "replica-" + (i + 1);
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, this.pool(properties, urls[i].trim(), name, environment, metrics)));
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, maxLag.toMillis(), lagQuery);
+        for (ReplicaRoutingDataSource.Replica replica : replicas) {
+            Gauge.builder("db.replica.up", replica, r -> r.isUp() ? 1 : 0)
+                    .description("Whether the replica answered the last check")
+                    .tag("pool", replica.name())
+                    .register(registry);
+            Gauge.builder("db.replica.lag", replica, r -> r.lagMillis() / 1000.0)
+                    .description("Replication lag of the replica at the last check")
+                    .tag("pool", replica.name())
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+        FunctionCounter.builder("db.routing.connections", routing, ReplicaRoutingDataSource::primaryConnections)
+                .description("Connections handed out by the routing data source")
+                .tag("target", "primary")
+                .register(registry);
+        FunctionCounter.builder("db.routing.connections", routing, ReplicaRoutingDataSource::replicaConnections)
+                .description("Connections handed out by the routing data source")
+                .tag("target", "replica")
+                .register(registry);
+        FunctionCounter.builder("db.routing.connections", routing, ReplicaRoutingDataSource::fallbackConnections)
+                .description("Connections handed out by the routing data source")
+                .tag("target", "fallback")
+                .register(registry);
+        routing.start(checkInterval.toMillis());
+        return routing;
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String url, String name,
+                                  Environment environment, MicrometerMetricsTrackerFactory metrics) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(metrics);
+        return pool;
+    }
+}
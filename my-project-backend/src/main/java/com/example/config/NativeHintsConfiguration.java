@@ -0,0 +1,47 @@
+package com.example.config;
+
+import com.example.entity.RestBean;
+import com.example.entity.ViewMapper;
+import com.example.entity.dto.Account;
+import com.example.entity.dto.LoginRecord;
+import com.example.entity.vo.response.AuthorizeVO;
+import com.example.mapper.AccountMapper;
+import com.example.mapper.LoginAuditMapper;
+import com.example.utils.RequestIdConverter;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.ServiceLoader;
+
+/**
+ * Reachability metadata for native images, covering what is only
+ * reached by reflection, proxies or resources outside of Spring's own analysis
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfiguration.ProjectRuntimeHints.class)
+@RegisterReflectionForBinding({RestBean.class, AuthorizeVO.class})
+public class NativeHintsConfiguration {
+
+    static class ProjectRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // %reqId converter, created by Logback from its class name
+            hints.reflection().registerType(RequestIdConverter.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            // DTO to VO mappers generated at compile time, found through ServiceLoader
+            hints.resources().registerPattern("META-INF/services/" + ViewMapper.class.getName());
+            for (ServiceLoader.Provider<ViewMapper> provider : ServiceLoader.load(ViewMapper.class, classLoader).stream().toList()) {
+                hints.reflection().registerType(provider.type(), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+            // MyBatis mapper proxies and the entities they map by reflection
+            hints.proxies().registerJdkProxy(AccountMapper.class);
+            hints.reflection().registerType(Account.class, MemberCategory.values());
+            hints.proxies().registerJdkProxy(LoginAuditMapper.class);
+            hints.reflection().registerType(LoginRecord.class, MemberCategory.values());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.config;
 
+import com.example.listener.MailQueueListener;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,4 +18,14 @@ public class RabbitConfiguration {
                 .durable("mail")
                 .build();
     }
+
+    /**
+     * Keeps the mail listener eager when lazy initialization is enabled,
+     * its @RabbitListener is only registered once the bean is created
+     * @return the exclude filter
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter mailQueueListenerExcludeFilter() {
+        return LazyInitializationExcludeFilter.forBeanTypes(MailQueueListener.class);
+    }
 }
@@ -0,0 +1,186 @@
+package com.example.config;
+
+import com.example.utils.InstrumentedRedisTemplate;
+import com.example.utils.RedisCircuitBreaker;
+import com.example.utils.RedisCommandMetrics;
+import com.example.utils.RedisKeys;
+import com.example.utils.RedisTrackingCache;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.resource.NettyCustomizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Redis client configuration
+ */
+@Slf4j
+@Configuration
+public class RedisConfiguration {
+
+    /**
+     * Replaces the auto-configured template so all Redis access is instrumented
+     * and guarded by the circuit breaker
+     * @param factory the connection factory
+     * @param metrics the command metrics
+     * @param breaker the circuit breaker
+     * @return the instrumented template
+     */
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory factory, RedisCommandMetrics metrics,
+                                                   RedisCircuitBreaker breaker) {
+        return new InstrumentedRedisTemplate(factory, metrics, breaker);
+    }
+
+    /**
+     * Circuit breaker around Redis, published as the "redis.breaker.state" gauge
+     * (0 closed, 1 open, 2 half open) and the "redis.breaker.transitions" counter
+     * @param registry the meter registry
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openDuration how long the circuit stays open before a probe
+     * @return the circuit breaker
+     */
+    @Bean
+    public RedisCircuitBreaker redisCircuitBreaker(MeterRegistry registry,
+                                                   @Value("${spring.data.redis.breaker.failure-threshold:3}") int failureThreshold,
+                                                   @Value("${spring.data.redis.breaker.open-duration:5s}") Duration openDuration) {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(failureThreshold, openDuration.toMillis());
+        Gauge.builder("redis.breaker.state", breaker, b -> b.state().ordinal())
+                .description("State of the Redis circuit breaker, 0 closed, 1 open, 2 half open")
+                .register(registry);
+        Map<RedisCircuitBreaker.State, Counter> transitions = new EnumMap<>(RedisCircuitBreaker.State.class);
+        for (RedisCircuitBreaker.State state : RedisCircuitBreaker.State.values()) {
+            transitions.put(state, Counter.builder("redis.breaker.transitions")
+                    .description("Transitions of the Redis circuit breaker by target state")
+                    .tag("state", state.name().toLowerCase())
+                    .register(registry));
+        }
+        breaker.onTransition((from, to) -> {
+            transitions.get(to).increment();
+            if(to == RedisCircuitBreaker.State.OPEN && from == RedisCircuitBreaker.State.CLOSED) {
+                log.warn("Redis is unavailable, switching to local rate limits and blacklist");
+            } else if(to == RedisCircuitBreaker.State.CLOSED) {
+                log.info("Redis is available again");
+            }
+        });
+        return breaker;
+    }
+
+    /**
+     * Key layout, "text" with descriptive prefixes or "compact" to save memory
+     * with many clients, see {@link RedisKeys}
+     * @param layout the configured layout
+     * @param buckets the blacklist hashes per hour of the compact layout
+     * @return the key layout
+     */
+    @Bean
+    public RedisKeys redisKeys(@Value("${spring.data.redis.key-layout:text}") String layout,
+                               @Value("${spring.data.redis.blacklist-buckets:256}") int buckets) {
+        return RedisKeys.of(layout, buckets);
+    }
+
+    /**
+     * Client-side cache of the token blacklist and the rate limit blocks, published
+     * as the "redis.tracking.size" gauge, the "redis.tracking.requests" counter
+     * by hit or miss and the "redis.tracking.invalidations" counter
+     * @param factory the connection factory, whose client opens the tracking connection
+     * @param keys the key layout, for the cached prefixes
+     * @param registry the meter registry
+     * @param enabled whether to cache at all
+     * @param maxEntries the number of entries kept at most
+     * @param maxAge how long an entry is kept at most
+     * @return the cache, inactive if disabled or not supported by the server
+     */
+    @Bean(destroyMethod = "close")
+    public RedisTrackingCache redisTrackingCache(RedisConnectionFactory factory, RedisKeys keys, MeterRegistry registry,
+                                                 @Value("${spring.data.redis.tracking.enabled:false}") boolean enabled,
+                                                 @Value("${spring.data.redis.tracking.max-entries:100000}") int maxEntries,
+                                                 @Value("${spring.data.redis.tracking.max-age:60s}") Duration maxAge) {
+        RedisTrackingCache cache = new RedisTrackingCache(maxEntries, maxAge.toMillis());
+        Gauge.builder("redis.tracking.size", cache, RedisTrackingCache::size)
+                .description("Entries in the Redis client-side cache")
+                .register(registry);
+        FunctionCounter.builder("redis.tracking.requests", cache, RedisTrackingCache::hits)
+                .description("Lookups of the Redis client-side cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("redis.tracking.requests", cache, RedisTrackingCache::misses)
+                .description("Lookups of the Redis client-side cache")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("redis.tracking.invalidations", cache, RedisTrackingCache::invalidations)
+                .description("Keys dropped from the Redis client-side cache because they were written")
+                .register(registry);
+        if(enabled && factory instanceof LettuceConnectionFactory lettuce && lettuce.getNativeClient() instanceof RedisClient client)
+            cache.connect(client, keys.blacklistPrefix(), keys.flowBlock(""));
+        return cache;
+    }
+
+    /**
+     * Coalesces the flushes of commands sent concurrently on the shared connection
+     * @param enabled whether to consolidate at all
+     * @param maxCommands the flushes held back at most
+     * @return the customizer
+     */
+    @Bean
+    public ClientResourcesBuilderCustomizer consolidateFlushes(@Value("${spring.data.redis.batching.enabled:false}") boolean enabled,
+                                                               @Value("${spring.data.redis.batching.max-commands:64}") int maxCommands) {
+        if(!enabled) return builder -> {};
+        return builder -> builder.nettyCustomizer(flushConsolidation(maxCommands));
+    }
+
+    /**
+     * Adds Netty's flush consolidation to each Redis channel. Flushes are held back
+     * while a read is in progress, or until the commands already queued on the event
+     * loop are written, and once maxCommands are waiting
+     * @param maxCommands the flushes held back at most
+     * @return the customizer
+     */
+    public static NettyCustomizer flushConsolidation(int maxCommands) {
+        return new NettyCustomizer() {
+            @Override
+            public void afterChannelInitialized(Channel channel) {
+                // First in the pipeline, so it sees the flushes after all encoding
+                channel.pipeline().addFirst("flushConsolidation", new FlushConsolidationHandler(maxCommands, true));
+            }
+        };
+    }
+
+    /**
+     * Rejects commands while the connection is down instead of queueing them
+     * until the command timeout, so the circuit breaker sees an outage at once
+     * @param properties the Redis properties, for the connect timeout
+     * @return the customizer
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer rejectWhileDisconnected(RedisProperties properties) {
+        return builder -> {
+            ClientOptions.Builder options = ClientOptions.builder()
+                    .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                    .timeoutOptions(TimeoutOptions.enabled());
+            if(properties.getConnectTimeout() != null)
+                options.socketOptions(SocketOptions.builder().connectTimeout(properties.getConnectTimeout()).build());
+            builder.clientOptions(options.build());
+        };
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.config;
 
 import com.example.entity.RestBean;
+import com.example.entity.StaticResponse;
 import com.example.entity.dto.Account;
+import com.example.entity.dto.LoginRecord;
 import com.example.entity.vo.response.AuthorizeVO;
+import com.example.filter.FlowLimitingFilter;
 import com.example.filter.JwtAuthenticationFilter;
 import com.example.filter.RequestLogFilter;
 import com.example.service.AccountService;
 import com.example.utils.Const;
 import com.example.utils.JwtUtils;
+import com.example.utils.LoginAudit;
+import com.example.utils.PhaseTimer;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,12 +23,14 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.util.Date;
 
 /**
  * SpringSecurity Relevant Configuration
@@ -31,9 +38,17 @@ import java.io.PrintWriter;
 @Configuration
 public class SecurityConfiguration {
 
+    private static final String LOGIN_URL = "/api/auth/login";
+
+    private static final StaticResponse LOGIN_TOO_FREQUENT =
+            StaticResponse.forbidden("Login attempts are too frequent, please try again later.");
+
     @Resource
     JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Resource
+    FlowLimitingFilter flowLimitingFilter;
+
     @Resource
     RequestLogFilter requestLogFilter;
 
@@ -43,6 +58,9 @@ public class SecurityConfiguration {
     @Resource
     AccountService service;
 
+    @Resource
+    LoginAudit audit;
+
     /**
      * Configuration method for the new version of Spring Security 6
      * @param http the configuration object
@@ -58,7 +76,7 @@ public class SecurityConfiguration {
                         .anyRequest().hasAnyRole(Const.ROLE_DEFAULT)
                 )
                 .formLogin(conf -> conf
-                        .loginProcessingUrl("/api/auth/login")
+                        .loginProcessingUrl(LOGIN_URL)
                         .failureHandler(this::handleProcess)
                         .successHandler(this::handleProcess)
                         .permitAll()
@@ -75,7 +93,8 @@ public class SecurityConfiguration {
                 .sessionManagement(conf -> conf
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(requestLogFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(jwtAuthenticationFilter, RequestLogFilter.class)
+                .addFilterBefore(flowLimitingFilter, RequestLogFilter.class)
+                .addFilterBefore(jwtAuthenticationFilter, FlowLimitingFilter.class)
                 .build();
     }
 
@@ -94,27 +113,42 @@ public class SecurityConfiguration {
                                HttpServletResponse response,
                                Object exceptionOrAuthentication) throws IOException {
         response.setContentType("application/json;charset=utf-8");
-        PrintWriter writer = response.getWriter();
+        OutputStream out = response.getOutputStream();
         if(exceptionOrAuthentication instanceof AccessDeniedException exception) {
-            writer.write(RestBean
-                    .forbidden(exception.getMessage()).asJsonString());
+            this.writeResult(request, out, RestBean
+                    .forbidden(exception.getMessage()));
         } else if(exceptionOrAuthentication instanceof Exception exception) {
-            writer.write(RestBean
-                    .unauthorized(exception.getMessage()).asJsonString());
+            if(exception instanceof AuthenticationException && LOGIN_URL.equals(request.getServletPath()))
+                this.recordLogin(request, null, request.getParameter("username"), false);
+            this.writeResult(request, out, RestBean
+                    .unauthorized(exception.getMessage()));
         } else if(exceptionOrAuthentication instanceof Authentication authentication){
             User user = (User) authentication.getPrincipal();
             Account account = service.findAccountByNameOrEmail(user.getUsername());
             String jwt = utils.createJwt(user, account.getUsername(), account.getId());
+            this.recordLogin(request, account.getId(), account.getUsername(), jwt != null);
             if(jwt == null) {
-                writer.write(RestBean.forbidden("Login attempts are too frequent, please try again later.").asJsonString());
+                this.writeResult(request, out, LOGIN_TOO_FREQUENT);
             } else {
                 AuthorizeVO vo = account.asViewObject(AuthorizeVO.class, o -> o.setToken(jwt));
                 vo.setExpire(utils.expireTime());
-                writer.write(RestBean.success(vo).asJsonString());
+                this.writeResult(request, out, RestBean.success(vo));
             }
         }
     }
 
+    /**
+     * Adds a login attempt to the audit, which writes it in the background
+     * @param request the login request
+     * @param accountId the account, or null if the credentials matched none
+     * @param username the username or email that was entered
+     * @param success whether a token was issued
+     */
+    private void recordLogin(HttpServletRequest request, Integer accountId, String username, boolean success) {
+        audit.record(new LoginRecord(accountId, username == null ? "" : username,
+                request.getRemoteAddr(), success, new Date()));
+    }
+
     /**
      * Handles logout by blacklisting the corresponding JWT token to prevent further use
      * @param request the request
@@ -126,12 +160,40 @@ public class SecurityConfiguration {
                                  HttpServletResponse response,
                                  Authentication authentication) throws IOException {
         response.setContentType("application/json;charset=utf-8");
-        PrintWriter writer = response.getWriter();
+        OutputStream out = response.getOutputStream();
         String authorization = request.getHeader("Authorization");
         if(utils.invalidateJwt(authorization)) {
-            writer.write(RestBean.success("Logout successful.").asJsonString());
+            this.writeResult(request, out, RestBean.success("Logout successful."));
             return;
         }
-        writer.write(RestBean.failure(400, "\n" + "Logout failed.").asJsonString());
+        this.writeResult(request, out, RestBean.failure(400, "\n" + "Logout failed."));
+    }
+
+    /**
+     * Serializes the result into the response, the time taken is
+     * recorded as the serialize phase of the request
+     * @param request the request
+     * @param out the response stream
+     * @param result the result to write
+     */
+    private void writeResult(HttpServletRequest request, OutputStream out, RestBean<?> result) {
+        PhaseTimer timer = PhaseTimer.of(request);
+        long start = timer.start();
+        result.writeTo(out);
+        timer.stop(PhaseTimer.Phase.SERIALIZE, start);
+    }
+
+    /**
+     * Writes a pre-encoded result into the response, timed like {@link #writeResult}
+     * @param request the request
+     * @param out the response stream
+     * @param result the pre-encoded result
+     * @throws IOException possible exceptions
+     */
+    private void writeResult(HttpServletRequest request, OutputStream out, StaticResponse result) throws IOException {
+        PhaseTimer timer = PhaseTimer.of(request);
+        long start = timer.start();
+        result.writeTo(out);
+        timer.stop(PhaseTimer.Phase.SERIALIZE, start);
     }
 }
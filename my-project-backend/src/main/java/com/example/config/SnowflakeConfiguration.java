@@ -0,0 +1,27 @@
+package com.example.config;
+
+import com.example.utils.SnowflakeIdGenerator;
+import com.example.utils.WorkerIdLease;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Snowflake ID generator configuration
+ */
+@Configuration
+public class SnowflakeConfiguration {
+
+    /**
+     * Creates the generator with the leased node ID, split into
+     * data center ID (high 5 bits) and worker ID (low 5 bits)
+     * @param lease the node ID lease
+     * @return the generator
+     */
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(WorkerIdLease lease) {
+        long nodeId = lease.nodeId();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(nodeId >> 5, nodeId & 31);
+        lease.onReassign(id -> generator.reassign(id >> 5, id & 31));
+        return generator;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Startup related configuration for the fast-startup build
+ */
+@Slf4j
+@Configuration
+public class StartupConfiguration {
+
+    /**
+     * Ends the class data sharing training run of the fast-startup build
+     * once the application is ready, the JVM writes the archive on exit
+     * The property is checked at runtime, since conditions are already
+     * evaluated when the bean definitions are generated ahead of time
+     * @return the listener
+     */
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> trainingRunExitListener() {
+        return event -> {
+            if(!event.getApplicationContext().getEnvironment()
+                    .getProperty("spring.startup.training", Boolean.class, false)) return;
+            log.info("Training run finished, exiting to write the class data archive");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+}
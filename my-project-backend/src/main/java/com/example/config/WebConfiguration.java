@@ -1,11 +1,19 @@
 package com.example.config;
 
+import com.example.filter.RequestContextBindingFilter;
+import com.example.utils.Const;
+import com.example.utils.RestBeanHttpMessageConverter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 /**
  * General web service configuration
  */
@@ -17,4 +25,28 @@ public class WebConfiguration implements WebMvcConfigurer {
     public PasswordEncoder passwordEncoder(){
         return new BCryptPasswordEncoder();
     }
+
+    /**
+     * Registers the request context filter in front of all other filters,
+     * also for error and async dispatches so they keep the request ID
+     * @param filter the filter
+     * @return the registration
+     */
+    @Bean
+    public FilterRegistrationBean<RequestContextBindingFilter> requestContextBindingFilterRegistration(RequestContextBindingFilter filter) {
+        FilterRegistrationBean<RequestContextBindingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Const.ORDER_REQUEST_CONTEXT);
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC, DispatcherType.ERROR);
+        return registration;
+    }
+
+    /**
+     * Puts the fastjson2 RestBean converter ahead of Jackson, so
+     * controller results are written the same way as filter responses
+     * @param converters the converters configured by Spring MVC
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new RestBeanHttpMessageConverter());
+    }
 }
@@ -10,10 +10,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
- * Controller dedicated to handling error pages
+ * Controller dedicated to handling error pages, the common client errors
+ * are answered in-line by {@link GlobalExceptionController}, so this is
+ * only reached by errors raised outside of Spring MVC
  */
 
 @RestController
@@ -27,9 +30,8 @@ public class ErrorPageController extends AbstractErrorController {
     @RequestMapping
     public RestBean<Void> error(HttpServletRequest request) {
         HttpStatus status = this.getStatus(request);
-        Map<String, Object> errorAttributes = this.getErrorAttributes(request, this.getAttributeOptions());
         String message = this.convertErrorMessage(status)
-                .orElse(errorAttributes.get("message").toString());
+                .orElseGet(() -> this.errorMessage(request, status));
         return RestBean.failure(status.value(), message);
     }
 
@@ -51,14 +53,26 @@ public class ErrorPageController extends AbstractErrorController {
     }
 
     /**
-     * Error attribute options, here we additionally include error message and exception type
+     * Reads the error message from the error attributes, falling back to
+     * the reason phrase of the status when there is none
+     * @param request the request
+     * @param status the status code
+     * @return the error message
+     */
+
+    private String errorMessage(HttpServletRequest request, HttpStatus status) {
+        Map<String, Object> errorAttributes = this.getErrorAttributes(request, this.getAttributeOptions());
+        return Objects.toString(errorAttributes.get("message"), status.getReasonPhrase());
+    }
+
+    /**
+     * Error attribute options, here we additionally include the error message
      * @return options
      */
 
     private ErrorAttributeOptions getAttributeOptions(){
         return ErrorAttributeOptions
                 .defaults()
-                .including(ErrorAttributeOptions.Include.MESSAGE,
-                        ErrorAttributeOptions.Include.EXCEPTION);
+                .including(ErrorAttributeOptions.Include.MESSAGE);
     }
 }
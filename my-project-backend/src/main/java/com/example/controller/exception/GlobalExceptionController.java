@@ -0,0 +1,79 @@
+package com.example.controller.exception;
+
+import com.example.entity.StaticResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.NoHandlerFoundException;
+
+import java.io.IOException;
+
+/**
+ * Handles the common client errors in-line, so they are answered with a
+ * pre-encoded body instead of going through the error dispatch to
+ * {@link ErrorPageController}, which stays as the fallback for everything else
+ */
+@Slf4j
+@RestControllerAdvice
+public class GlobalExceptionController {
+
+    private static final StaticResponse NOT_FOUND =
+            StaticResponse.failure(404, "Requested endpoint does not exist");
+    private static final StaticResponse METHOD_NOT_ALLOWED =
+            StaticResponse.failure(405, "Incorrect request method");
+    private static final StaticResponse BAD_REQUEST =
+            StaticResponse.failure(400, "Invalid request parameters");
+
+    /**
+     * Requests for endpoints that do not exist, typically scanners, only logged at debug level
+     * @param exception the exception
+     * @param response the response
+     * @throws IOException possible exception
+     */
+    @ExceptionHandler(NoHandlerFoundException.class)
+    public void notFound(NoHandlerFoundException exception, HttpServletResponse response) throws IOException {
+        log.debug("Resolved [{}: {}]", exception.getClass().getName(), exception.getMessage());
+        NOT_FOUND.writeTo(response);
+    }
+
+    /**
+     * Requests using a method the endpoint does not support, the supported ones are listed in Allow
+     * @param exception the exception
+     * @param response the response
+     * @throws IOException possible exception
+     */
+    @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
+    public void methodNotAllowed(HttpRequestMethodNotSupportedException exception,
+                                 HttpServletResponse response) throws IOException {
+        log.debug("Resolved [{}: {}]", exception.getClass().getName(), exception.getMessage());
+        String[] methods = exception.getSupportedMethods();
+        if(methods != null)
+            response.setHeader(HttpHeaders.ALLOW, String.join(", ", methods));
+        METHOD_NOT_ALLOWED.writeTo(response);
+    }
+
+    /**
+     * Requests with missing, unreadable or invalid parameters, logged like Spring Boot does
+     * Failed constraints on controller method parameters are left to {@link ValidationController}
+     * @param exception the exception
+     * @param response the response
+     * @throws IOException possible exception
+     */
+    @ExceptionHandler({
+            ServletRequestBindingException.class,
+            MethodArgumentTypeMismatchException.class,
+            MethodArgumentNotValidException.class,
+            HttpMessageNotReadableException.class
+    })
+    public void badRequest(Exception exception, HttpServletResponse response) throws IOException {
+        log.warn("Resolved [{}: {}]", exception.getClass().getName(), exception.getMessage());
+        BAD_REQUEST.writeTo(response);
+    }
+}
@@ -1,10 +1,11 @@
 package com.example.entity;
 
+import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
 import com.alibaba.fastjson2.JSONWriter;
-import org.slf4j.MDC;
+import com.example.utils.RequestContext;
 
-import java.util.Optional;
+import java.io.OutputStream;
 
 /**
  * Response entity class encapsulation in RESTful style
@@ -44,13 +45,22 @@ public record RestBean<T>(long id, int code, T data, String message) {
         return JSONObject.toJSONString(this, JSONWriter.Feature.WriteNulls);
     }
 
+    /**
+     * Writes the current entity as UTF-8 JSON straight into the stream,
+     * without building an intermediate string
+     *
+     * @param out the output stream, usually the response stream
+     */
+    public void writeTo(OutputStream out) {
+        JSON.writeTo(out, this, JSONWriter.Feature.WriteNulls);
+    }
+
     /**
      * Retrieves the current request ID for quick error localization
      *
      * @return the request ID
      */
-    private static long requestId() {
-        String requestId = Optional.ofNullable(MDC.get("reqId")).orElse("0");
-        return Long.parseLong(requestId);
+    static long requestId() {
+        return RequestContext.currentRequestId();
     }
 }
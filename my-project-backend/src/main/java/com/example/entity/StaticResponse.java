@@ -0,0 +1,108 @@
+package com.example.entity;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pre-encoded body of a RestBean whose code and message never change
+ * The JSON is serialized once as UTF-8 bytes around a placeholder id,
+ * each response only splices in the digits of the current request ID
+ */
+public final class StaticResponse {
+
+    private static final long PLACEHOLDER_ID = 1234567890123456789L;
+
+    private final int status;
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private StaticResponse(int status, byte[] prefix, byte[] suffix) {
+        this.status = status;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    public static StaticResponse forbidden(String message) {
+        return failure(403, message);
+    }
+
+    public static StaticResponse unauthorized(String message) {
+        return failure(401, message);
+    }
+
+    public static StaticResponse failure(int code, String message) {
+        byte[] json = new RestBean<>(PLACEHOLDER_ID, code, null, message)
+                .asJsonString().getBytes(StandardCharsets.UTF_8);
+        byte[] placeholder = String.valueOf(PLACEHOLDER_ID).getBytes(StandardCharsets.US_ASCII);
+        int index = indexOf(json, placeholder);
+        if(index < 0)
+            throw new IllegalStateException("Request id placeholder not found in " + new String(json, StandardCharsets.UTF_8));
+        return new StaticResponse(code,
+                Arrays.copyOfRange(json, 0, index),
+                Arrays.copyOfRange(json, index + placeholder.length, json.length));
+    }
+
+    /**
+     * Encodes the body with the given request ID
+     * @param id the request ID
+     * @return the UTF-8 JSON body
+     */
+    public byte[] encode(long id) {
+        int digits = stringSize(id);
+        byte[] body = new byte[prefix.length + digits + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        int position = prefix.length + digits;
+        long value = id;
+        boolean negative = value < 0;
+        do {
+            body[--position] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        if(negative) body[--position] = '-';
+        System.arraycopy(suffix, 0, body, prefix.length + digits, suffix.length);
+        return body;
+    }
+
+    /**
+     * Writes the body with the current request ID into the stream
+     * @param out the output stream
+     * @throws IOException possible exception
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.encode(RestBean.requestId()));
+    }
+
+    /**
+     * Sets the status, content type and length of the response and writes the body
+     * @param response the response
+     * @throws IOException possible exception
+     */
+    public void writeTo(HttpServletResponse response) throws IOException {
+        byte[] body = this.encode(RestBean.requestId());
+        response.setStatus(status);
+        response.setContentType("application/json;charset=utf-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static int stringSize(long value) {
+        int size = value < 0 ? 2 : 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) size++;
+        return size;
+    }
+
+    private static int indexOf(byte[] source, byte[] target) {
+        outer:
+        for (int i = 0; i <= source.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if(source[i + j] != target[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.entity;
+
+/**
+ * Direct field-copy conversion from a DTO to a VO, implementations are
+ * generated for every type listed in {@link ViewObjects} and registered
+ * as services under META-INF/services
+ * @param <S> the DTO type
+ * @param <V> the VO type
+ */
+public interface ViewMapper<S, V> {
+    Class<S> sourceType();
+    Class<V> targetType();
+    V map(S source);
+}
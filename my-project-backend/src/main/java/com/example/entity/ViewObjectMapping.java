@@ -0,0 +1,154 @@
+package com.example.entity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapping engine behind {@link BaseData#asViewObject(Class)}
+ * Pairs declared with {@link ViewObjects} use the mapper generated at
+ * compile time. For any other pair reflection is only used once to build
+ * a plan of method handles, which is cached, later conversions just run the plan
+ */
+final class ViewObjectMapping {
+
+    private static final Logger log = LoggerFactory.getLogger(BaseData.class);
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<Map<Class<?>, Converter>> PLANS = new ClassValue<>() {
+        @Override
+        protected Map<Class<?>, Converter> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final Map<Class<?>, Map<Class<?>, ViewMapper<?, ?>>> GENERATED = loadGeneratedMappers();
+
+    private ViewObjectMapping() {}
+
+    /**
+     * Creates the VO and copies all fields with the same name from the DTO
+     * @param source the DTO
+     * @param target the VO type
+     * @return the VO
+     * @param <V> the VO type
+     */
+    @SuppressWarnings("unchecked")
+    static <V> V map(Object source, Class<V> target) {
+        Map<Class<?>, Converter> plans = PLANS.get(source.getClass());
+        Converter plan = plans.get(target);
+        if(plan == null)
+            plan = plans.computeIfAbsent(target, type -> createConverter(source.getClass(), type));
+        return (V) plan.apply(source);
+    }
+
+    /**
+     * Picks the generated mapper of the pair if there is one, otherwise builds a plan
+     * @param source the DTO type
+     * @param target the VO type
+     * @return the converter
+     */
+    @SuppressWarnings("unchecked")
+    private static Converter createConverter(Class<?> source, Class<?> target) {
+        ViewMapper<Object, Object> mapper = (ViewMapper<Object, Object>)
+                GENERATED.getOrDefault(source, Map.of()).get(target);
+        return mapper != null ? mapper::map : createPlan(source, target);
+    }
+
+    /**
+     * Loads the mappers generated by the annotation processor
+     * @return the mappers by DTO type and VO type
+     */
+    private static Map<Class<?>, Map<Class<?>, ViewMapper<?, ?>>> loadGeneratedMappers() {
+        Map<Class<?>, Map<Class<?>, ViewMapper<?, ?>>> mappers = new HashMap<>();
+        for (ViewMapper<?, ?> mapper : ServiceLoader.load(ViewMapper.class, ViewObjectMapping.class.getClassLoader())) {
+            mappers.computeIfAbsent(mapper.sourceType(), type -> new HashMap<>())
+                    .put(mapper.targetType(), mapper);
+        }
+        return mappers;
+    }
+
+    /**
+     * Resolves the constructor and the matching field pairs of a DTO and VO type,
+     * fields only present on one side or with incompatible types are left out
+     * @param source the DTO type
+     * @param target the VO type
+     * @return the plan
+     */
+    private static Plan createPlan(Class<?> source, Class<?> target) {
+        try {
+            MethodHandles.Lookup sourceLookup = MethodHandles.privateLookupIn(source, MethodHandles.lookup());
+            MethodHandles.Lookup targetLookup = MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+            MethodHandle constructor = targetLookup
+                    .unreflectConstructor(target.getConstructor())
+                    .asType(CONSTRUCTOR_TYPE);
+            Map<String, Field> sourceFields = new HashMap<>();
+            for (Field field : source.getDeclaredFields()) {
+                if(!Modifier.isStatic(field.getModifiers())) sourceFields.put(field.getName(), field);
+            }
+            List<MethodHandle> getters = new ArrayList<>();
+            List<MethodHandle> setters = new ArrayList<>();
+            for (Field field : target.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if(Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) continue;
+                Field sourceField = sourceFields.get(field.getName());
+                if(sourceField == null || !isAssignable(field.getType(), sourceField.getType())) continue;
+                getters.add(sourceLookup.unreflectGetter(sourceField).asType(GETTER_TYPE));
+                setters.add(targetLookup.unreflectSetter(field).asType(SETTER_TYPE));
+            }
+            return new Plan(constructor,
+                    getters.toArray(MethodHandle[]::new),
+                    setters.toArray(MethodHandle[]::new));
+        } catch (ReflectiveOperationException exception) {
+            log.error("An error occurred during the conversion between VO and DTO", exception);
+            throw new RuntimeException(exception.getMessage());
+        }
+    }
+
+    private static boolean isAssignable(Class<?> target, Class<?> source) {
+        return MethodType.methodType(target).wrap().returnType()
+                .isAssignableFrom(MethodType.methodType(source).wrap().returnType());
+    }
+
+    /**
+     * Cached conversion for one (DTO, VO) pair
+     */
+    private interface Converter {
+        Object apply(Object source);
+    }
+
+    /**
+     * Conversion plan built from method handles
+     */
+    private record Plan(MethodHandle constructor, MethodHandle[] getters, MethodHandle[] setters) implements Converter {
+        @Override
+        public Object apply(Object source) {
+            try {
+                Object target = (Object) constructor.invokeExact();
+                for (int i = 0; i < getters.length; i++) {
+                    setters[i].invokeExact(target, (Object) getters[i].invokeExact(source));
+                }
+                return target;
+            } catch (RuntimeException | Error exception) {
+                throw exception;
+            } catch (Throwable throwable) {
+                log.error("An error occurred during the conversion between VO and DTO", throwable);
+                throw new RuntimeException(throwable.getMessage());
+            }
+        }
+    }
+}
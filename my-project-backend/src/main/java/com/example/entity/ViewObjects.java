@@ -0,0 +1,15 @@
+package com.example.entity;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares the VO types a {@link BaseData} DTO is converted to, a mapper
+ * copying the fields directly is generated for each of them at compile time
+ * and used by {@link BaseData#asViewObject(Class)} instead of reflection
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ViewObjects {
+    Class<?>[] value();
+}
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.example.entity.BaseData;
+import com.example.entity.ViewObjects;
+import com.example.entity.vo.response.AuthorizeVO;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -15,6 +17,7 @@ import java.util.Date;
 @Data
 @TableName("db_account")
 @AllArgsConstructor
+@ViewObjects(AuthorizeVO.class)
 public class Account implements BaseData {
     @TableId(type = IdType.AUTO)
     Integer id;
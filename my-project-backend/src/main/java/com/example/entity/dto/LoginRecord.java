@@ -0,0 +1,19 @@
+package com.example.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * A login attempt in the login audit
+ */
+@Data
+@AllArgsConstructor
+public class LoginRecord {
+    Integer accountId;
+    String username;
+    String address;
+    boolean success;
+    Date loginTime;
+}
@@ -0,0 +1,128 @@
+package com.example.filter;
+
+import com.example.entity.StaticResponse;
+import com.example.utils.AdaptiveConcurrencyLimit;
+import com.example.utils.Const;
+import com.example.utils.PhaseTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Load shedding filter, caps the number of requests in flight across all
+ * clients with an adaptive limit, so a slow database or Redis makes the
+ * application turn requests away with a 503 instead of piling up threads.
+ * Logins have their own budget, password hashing is expensive and must
+ * not use up the capacity of all other requests
+ */
+@Component
+@Order(Const.ORDER_CONCURRENCY_LIMIT)
+public class ConcurrencyLimitingFilter extends HttpFilter {
+
+    private static final StaticResponse BUSY_MESSAGE =
+            StaticResponse.failure(503, "Server is busy, please try again later");
+
+    @Resource
+    MeterRegistry registry;
+
+    // Limits of ordinary requests
+    @Value("${spring.web.concurrency.general.initial:50}")
+    int generalInitial;
+    @Value("${spring.web.concurrency.general.min:20}")
+    int generalMin;
+    @Value("${spring.web.concurrency.general.max:200}")
+    int generalMax;
+    // Limits of login requests
+    @Value("${spring.web.concurrency.login.initial:20}")
+    int loginInitial;
+    @Value("${spring.web.concurrency.login.min:20}")
+    int loginMin;
+    @Value("${spring.web.concurrency.login.max:64}")
+    int loginMax;
+    // How far latency may rise above its baseline before the limits shrink
+    @Value("${spring.web.concurrency.tolerance:2.0}")
+    double tolerance;
+    // Completed requests per limit update
+    @Value("${spring.web.concurrency.window:50}")
+    int window;
+
+    private AdaptiveConcurrencyLimit general;
+    private AdaptiveConcurrencyLimit login;
+    private Counter generalRejected;
+    private Counter loginRejected;
+
+    @PostConstruct
+    public void createLimits() {
+        this.general = new AdaptiveConcurrencyLimit(generalInitial, generalMin, generalMax, tolerance, 0.2, window);
+        this.login = new AdaptiveConcurrencyLimit(loginInitial, loginMin, loginMax, tolerance, 0.2, window);
+        this.generalRejected = this.registerMeters("general", general);
+        this.loginRejected = this.registerMeters("login", login);
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        boolean isLogin = this.isLogin(request);
+        AdaptiveConcurrencyLimit limit = isLogin ? login : general;
+        if(!limit.tryAcquire()) {
+            (isLogin ? loginRejected : generalRejected).increment();
+            this.writeBusyMessage(response, PhaseTimer.of(request));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isLogin(HttpServletRequest request) {
+        return "POST".equals(request.getMethod()) && "/api/auth/login".equals(request.getRequestURI());
+    }
+
+    /**
+     * Publishes the current limit, the requests in flight and the rejections of a budget
+     * @param budget the budget name
+     * @param limit the limit of the budget
+     * @return the rejection counter
+     */
+    private Counter registerMeters(String budget, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("http.server.concurrency.limit", limit, AdaptiveConcurrencyLimit::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("budget", budget)
+                .register(registry);
+        Gauge.builder("http.server.concurrency.inflight", limit, AdaptiveConcurrencyLimit::inflight)
+                .description("Requests currently in flight")
+                .tag("budget", budget)
+                .register(registry);
+        return Counter.builder("http.server.concurrency.rejected")
+                .description("Requests turned away because the limit was reached")
+                .tag("budget", budget)
+                .register(registry);
+    }
+
+    /**
+     * Writes the pre-encoded busy message, asking the client to retry shortly
+     * @param response the response
+     * @param timer the phase timer of the request
+     * @throws IOException possible exception
+     */
+    private void writeBusyMessage(HttpServletResponse response, PhaseTimer timer) throws IOException {
+        long start = timer.start();
+        response.setHeader("Retry-After", "1");
+        BUSY_MESSAGE.writeTo(response);
+        timer.stop(PhaseTimer.Phase.SERIALIZE, start);
+    }
+}
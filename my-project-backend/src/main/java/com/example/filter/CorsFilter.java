@@ -1,6 +1,9 @@
 package com.example.filter;
 
 import com.example.utils.Const;
+import com.example.utils.OriginMatcher;
+import com.example.utils.PhaseTimer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpFilter;
@@ -11,15 +14,23 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
- * CORS configuration filter, handles only CORS and adds CORS
- * response headers
+ * CORS configuration filter, adds CORS response headers for allowed
+ * origins and answers preflight requests directly, so they never reach
+ * the rate limiter or the security chain
  */
 @Component
 @Order(Const.ORDER_CORS)
 public class CorsFilter extends HttpFilter {
 
+    private static final String ALL_METHODS = "GET, HEAD, POST, PUT, DELETE, OPTIONS, TRACE, PATCH";
+    private static final String ALLOWED_HEADERS = "Authorization, Content-Type";
+
     @Value("${spring.web.cors.origin}")
     String origin;
 
@@ -29,40 +40,97 @@ public class CorsFilter extends HttpFilter {
     @Value("${spring.web.cors.methods}")
     String methods;
 
+    // How long browsers may cache a preflight result, in seconds
+    @Value("${spring.web.cors.max-age:1800}")
+    long maxAge;
+
+    private OriginMatcher matcher;
+    private Set<String> allowedMethods;
+    private String allowMethods;
+    private String maxAgeValue;
+
+    @PostConstruct
+    public void init() {
+        this.matcher = OriginMatcher.compile(origin);
+        this.allowMethods = this.resolveMethod();
+        this.allowedMethods = Arrays.stream(allowMethods.split(","))
+                .map(method -> method.trim().toUpperCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.maxAgeValue = String.valueOf(maxAge);
+    }
+
     @Override
     protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
-        this.addCorsHeader(request, response);
+        PhaseTimer timer = PhaseTimer.of(request);
+        long start = timer.start();
+        String requestOrigin = request.getHeader("Origin");
+        if(requestOrigin == null) {
+            timer.stop(PhaseTimer.Phase.CORS, start);
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean allowed = matcher.matches(requestOrigin);
+        if(this.isPreflight(request)) {
+            this.handlePreflight(request, response, requestOrigin, allowed);
+            timer.stop(PhaseTimer.Phase.CORS, start);
+            return;
+        }
+        if(allowed) this.addOriginHeaders(response, requestOrigin);
+        timer.stop(PhaseTimer.Phase.CORS, start);
         chain.doFilter(request, response);
     }
 
+    private boolean isPreflight(HttpServletRequest request) {
+        return "OPTIONS".equals(request.getMethod())
+                && request.getHeader("Access-Control-Request-Method") != null;
+    }
+
     /**
-     * Adds all CORS-related response headers
+     * Answers a preflight request with the precomputed headers, origins or
+     * methods that are not allowed get a 403 without any CORS headers
      * @param request the request
      * @param response the response
+     * @param requestOrigin the origin of the request
+     * @param allowed whether the origin is allowed
      */
-    private void addCorsHeader(HttpServletRequest request, HttpServletResponse response) {
-        response.addHeader("Access-Control-Allow-Origin", this.resolveOrigin(request));
-        response.addHeader("Access-Control-Allow-Methods", this.resolveMethod());
-        response.addHeader("Access-Control-Allow-Headers", "Authorization, Content-Type");
-        if(credentials) {
-            response.addHeader("Access-Control-Allow-Credentials", "true");
+    private void handlePreflight(HttpServletRequest request, HttpServletResponse response,
+                                 String requestOrigin, boolean allowed) {
+        String method = request.getHeader("Access-Control-Request-Method").trim().toUpperCase(Locale.ROOT);
+        if(!allowed || !allowedMethods.contains(method)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
         }
+        this.addOriginHeaders(response, requestOrigin);
+        response.setHeader("Access-Control-Allow-Methods", allowMethods);
+        response.setHeader("Access-Control-Allow-Headers", ALLOWED_HEADERS);
+        response.setHeader("Access-Control-Max-Age", maxAgeValue);
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
     }
 
     /**
-     * Parses the request methods from the configuration file
-     * @return the resolved request methods
+     * Adds the headers shared by preflight and actual requests, the literal
+     * "*" is only sent when any origin is allowed without credentials,
+     * otherwise the origin is echoed and caches are told it varies
+     * @param response the response
+     * @param requestOrigin the origin of the request
      */
-    private String resolveMethod(){
-        return methods.equals("*") ? "GET, HEAD, POST, PUT, DELETE, OPTIONS, TRACE, PATCH" : methods;
+    private void addOriginHeaders(HttpServletResponse response, String requestOrigin) {
+        if(matcher.matchesAny() && !credentials) {
+            response.setHeader("Access-Control-Allow-Origin", "*");
+        } else {
+            response.setHeader("Access-Control-Allow-Origin", requestOrigin);
+            response.addHeader("Vary", "Origin");
+        }
+        if(credentials) {
+            response.setHeader("Access-Control-Allow-Credentials", "true");
+        }
     }
 
     /**
-     * Parses the request origin from the configuration file
-     * @param request the request
-     * @return the resolved request origin
+     * Parses the request methods from the configuration file
+     * @return the resolved request methods
      */
-    private String resolveOrigin(HttpServletRequest request){
-        return origin.equals("*") ? request.getHeader("Origin") : origin;
+    private String resolveMethod(){
+        return methods.equals("*") ? ALL_METHODS : methods;
     }
 }
@@ -1,35 +1,42 @@
 package com.example.filter;
 
-import com.example.entity.RestBean;
+import com.example.entity.StaticResponse;
 import com.example.utils.Const;
 import com.example.utils.FlowUtils;
+import com.example.utils.PhaseTimer;
+import com.example.utils.RouteQuotas;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.annotation.Order;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Rate limiting filter to prevent users from making high-frequency
  * requests. Utilizes Redis for rate limiting.
+ * Each request is counted on several dimensions at once, all traffic,
+ * the client network, the authenticated user and configured routes, in a
+ * single Redis call. It runs in the security chain after the JWT filter,
+ * so the user ID is known, and reports the most restrictive quota in the
+ * RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset headers.
  */
 @Slf4j
 @Component
-@Order(Const.ORDER_FLOW_LIMIT)
-public class FlowLimitingFilter extends HttpFilter {
+public class FlowLimitingFilter extends OncePerRequestFilter {
 
-    @Resource
-    StringRedisTemplate template;
-    // Maximum request limit within the specified time period
+    private static final StaticResponse BLOCK_MESSAGE =
+            StaticResponse.failure(429, "Too many requests, please try again later");
+
+    // Maximum request limit within the specified time period, per client network
     @Value("${spring.web.flow.limit}")
     int limit;
     // Time period for counting requests
@@ -38,46 +45,89 @@ public class FlowLimitingFilter extends HttpFilter {
     // Block duration after exceeding the request limit
     @Value("${spring.web.flow.block}")
     int block;
+    // Prefix lengths client addresses are grouped by, 32 counts each IPv4 address on its own
+    @Value("${spring.web.flow.ipv4-prefix:32}")
+    int ipv4Prefix;
+    @Value("${spring.web.flow.ipv6-prefix:64}")
+    int ipv6Prefix;
+    // Limit per authenticated user over the same period, 0 to disable
+    @Value("${spring.web.flow.user-limit:0}")
+    int userLimit;
+    // Limit of all traffic per second, 0 to disable
+    @Value("${spring.web.flow.global-limit:0}")
+    int globalLimit;
+    // Per-route overrides, path=limit/period[/block] [algorithm] separated by commas
+    @Value("${spring.web.flow.routes:}")
+    String routes;
+    // fixed-window, gcra or sliding-log
+    @Value("${spring.web.flow.algorithm:fixed-window}")
+    String algorithm;
 
     @Resource
     FlowUtils utils;
 
+    private RouteQuotas routeQuotas;
+    private FlowUtils.Algorithm defaultAlgorithm;
+
+    @PostConstruct
+    public void init() {
+        this.routeQuotas = RouteQuotas.compile(routes);
+        this.defaultAlgorithm = FlowUtils.Algorithm.of(algorithm);
+    }
+
     @Override
-    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
-        String address = request.getRemoteAddr();
-        if (!tryCount(address))
-            this.writeBlockMessage(response);
-        else
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        PhaseTimer timer = PhaseTimer.of(request);
+        long start = timer.start();
+        FlowUtils.Decision decision = utils.checkQuotas(this.quotas(request));
+        timer.stop(PhaseTimer.Phase.FLOW_LIMIT, start);
+        long reset = (decision.resetMillis() + 999) / 1000;
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.limit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(reset));
+        if (!decision.allowed()) {
+            log.debug("Request to {} blocked by quota {}", request.getRequestURI(), decision.quota().key());
+            response.setHeader("Retry-After", String.valueOf(reset));
+            this.writeBlockMessage(response, timer);
+        } else {
             chain.doFilter(request, response);
+        }
     }
 
-
     /**
-     * Attempts to count requests from a specific IP address.
-     * If the limit is exceeded, further access is denied.
-     * @param address the request IP address
-     * @return whether the operation was successful
+     * Collects the quotas that apply to the request
+     * @param request the request
+     * @return the quotas, from the widest to the narrowest
      */
-    private boolean tryCount(String address) {
-        synchronized (address.intern()) {
-            if (Boolean.TRUE.equals(template.hasKey(Const.FLOW_LIMIT_BLOCK + address)))
-                return false;
-            String counterKey = Const.FLOW_LIMIT_COUNTER + address;
-            String blockKey = Const.FLOW_LIMIT_BLOCK + address;
-            return utils.limitPeriodCheck(counterKey, blockKey, block, limit, period);
+    private List<FlowUtils.Quota> quotas(HttpServletRequest request) {
+        List<FlowUtils.Quota> quotas = new ArrayList<>(4);
+        if (globalLimit > 0)
+            quotas.add(new FlowUtils.Quota("global", globalLimit, 1, 0, defaultAlgorithm));
+        String network = FlowUtils.network(request.getRemoteAddr(), ipv4Prefix, ipv6Prefix);
+        quotas.add(new FlowUtils.Quota("ip:" + network, limit, period, block, defaultAlgorithm));
+        Object userId = request.getAttribute(Const.ATTR_USER_ID);
+        if (userId != null && userLimit > 0)
+            quotas.add(new FlowUtils.Quota("user:" + userId, userLimit, period, block, defaultAlgorithm));
+        RouteQuotas.Rule rule = routeQuotas.find(request.getRequestURI());
+        if (rule != null) {
+            String client = userId != null ? "user:" + userId : "ip:" + network;
+            quotas.add(new FlowUtils.Quota("route:" + rule.route() + ":" + client, rule.limit(), rule.period(), rule.block(),
+                    rule.algorithm() != null ? rule.algorithm() : defaultAlgorithm));
         }
+        return quotas;
     }
 
     /**
      * Writes a block message to the response, indicating that the
-     * user is making requests too frequently.
+     * user is making requests too frequently. The body is pre-encoded,
+     * since this is the path taken by every request during a flood.
      * @param response the response
+     * @param timer the phase timer of the request
      * @throws IOException possible exception
      */
-    private void writeBlockMessage(HttpServletResponse response) throws IOException {
-        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-        response.setContentType("application/json;charset=utf-8");
-        PrintWriter writer = response.getWriter();
-        writer.write(RestBean.forbidden("Too many requests, please try again later").asJsonString());
+    private void writeBlockMessage(HttpServletResponse response, PhaseTimer timer) throws IOException {
+        long start = timer.start();
+        BLOCK_MESSAGE.writeTo(response);
+        timer.stop(PhaseTimer.Phase.SERIALIZE, start);
     }
 }
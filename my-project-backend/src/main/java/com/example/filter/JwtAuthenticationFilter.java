@@ -3,6 +3,8 @@ package com.example.filter;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.utils.Const;
 import com.example.utils.JwtUtils;
+import com.example.utils.PhaseTimer;
+import com.example.utils.RequestContext;
 import jakarta.annotation.Resource;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -33,6 +35,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
+        PhaseTimer timer = PhaseTimer.of(request);
+        long start = timer.start();
         String authorization = request.getHeader("Authorization");
         DecodedJWT jwt = utils.resolveJwt(authorization);
         if(jwt != null) {
@@ -41,8 +45,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            request.setAttribute(Const.ATTR_USER_ID, utils.toId(jwt));
+            Integer id = utils.toId(jwt);
+            request.setAttribute(Const.ATTR_USER_ID, id);
+            RequestContext.of(request).setUserId(id);
         }
+        timer.stop(PhaseTimer.Phase.JWT, start);
         filterChain.doFilter(request, response);
     }
 }
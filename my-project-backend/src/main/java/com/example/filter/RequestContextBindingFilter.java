@@ -0,0 +1,38 @@
+package com.example.filter;
+
+import com.example.utils.RequestContext;
+import com.example.utils.SnowflakeIdGenerator;
+import jakarta.annotation.Resource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Outermost filter, assigns the request ID and binds the request context
+ * to the serving thread for the rest of the chain, the binding is always
+ * removed when the request leaves the chain
+ * Registered for error and async dispatches too, which reuse the
+ * context already stored on the request
+ */
+@Component
+public class RequestContextBindingFilter extends HttpFilter {
+
+    @Resource
+    SnowflakeIdGenerator generator;
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        RequestContext context = RequestContext.of(request, generator::nextId);
+        RequestContext previous = RequestContext.bind(context);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestContext.bind(previous);
+        }
+    }
+}
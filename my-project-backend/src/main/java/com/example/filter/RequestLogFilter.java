@@ -1,15 +1,16 @@
 package com.example.filter;
 
 import com.alibaba.fastjson2.JSONObject;
-import com.example.utils.Const;
-import com.example.utils.SnowflakeIdGenerator;
+import com.example.utils.PhaseMetrics;
+import com.example.utils.PhaseTimer;
+import com.example.utils.RedisUsage;
+import com.example.utils.RequestContext;
 import jakarta.annotation.Resource;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.MDC;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
@@ -27,7 +28,7 @@ import java.util.Set;
 public class RequestLogFilter extends OncePerRequestFilter {
 
     @Resource
-    SnowflakeIdGenerator generator;
+    PhaseMetrics metrics;
 
     private final Set<String> ignores = Set.of("/swagger-ui", "/v3/api-docs");
 
@@ -39,8 +40,11 @@ public class RequestLogFilter extends OncePerRequestFilter {
             long startTime = System.currentTimeMillis();
             this.logRequestStart(request);
             ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            PhaseTimer timer = PhaseTimer.of(request);
+            long start = timer.start();
             filterChain.doFilter(request, wrapper);
-            this.logRequestEnd(wrapper, startTime);
+            timer.stop(PhaseTimer.Phase.HANDLER, start);
+            this.logRequestEnd(request, wrapper, startTime, timer);
             wrapper.copyBodyToResponse();
         }
     }
@@ -59,16 +63,22 @@ public class RequestLogFilter extends OncePerRequestFilter {
 
     /**
      * Logs request information at the end, including processing
-     * time and response result
+     * time, the time breakdown per phase, Redis usage and response result
+     * @param request the request
      * @param wrapper wrapper for reading the response content
      * @param startTime start time
+     * @param timer the phase timer of the request
      */
-    public void logRequestEnd(ContentCachingResponseWrapper wrapper, long startTime) {
+    public void logRequestEnd(HttpServletRequest request, ContentCachingResponseWrapper wrapper,
+                              long startTime, PhaseTimer timer) {
         long time = System.currentTimeMillis() - startTime;
+        metrics.record(timer);
+        RedisUsage usage = RedisUsage.of(request);
         int status = wrapper.getStatus();
         String content = status != 200 ?
                 status + " Error" : new String(wrapper.getContentAsByteArray());
-        log.info("Request processing time: {}ms | Response result: {}", time, content);
+        log.info("Request processing time: {}ms ({}) | Redis: {} | Response result: {}",
+                time, timer, usage.commands() == 0 ? "none" : usage, content);
     }
 
     /**
@@ -77,11 +87,9 @@ public class RequestLogFilter extends OncePerRequestFilter {
      * @param request the request
      */
     public void logRequestStart(HttpServletRequest request) {
-        long reqId = generator.nextId();
-        MDC.put("reqId", String.valueOf(reqId));
         JSONObject object = new JSONObject();
         request.getParameterMap().forEach((k, v) -> object.put(k, v.length > 0 ? v[0] : null));
-        Object id = request.getAttribute(Const.ATTR_USER_ID);
+        Integer id = RequestContext.of(request).userId();
         if (id != null) {
             User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
             log.info("Request URL: \"{}\" ({}) | Remote IP address: {} │ Identity: {} (UID: {}) | Roles: {} | Request parameters: {}",
@@ -4,6 +4,7 @@ import jakarta.annotation.Resource;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
@@ -17,6 +18,8 @@ import java.util.Map;
 @RabbitListener(queues = "mail")
 public class MailQueueListener {
 
+    // Created on the first mail, not at startup
+    @Lazy
     @Resource
     JavaMailSender sender;
 
@@ -0,0 +1,43 @@
+package com.example.mapper;
+
+import com.example.entity.dto.LoginRecord;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+
+@Mapper
+public interface LoginAuditMapper {
+
+    /**
+     * Appends login attempts to the audit in one statement
+     * @param records the attempts
+     * @return the rows inserted
+     */
+    @Insert("""
+            <script>
+            INSERT INTO db_login_audit (account_id, username, address, success, login_time) VALUES
+            <foreach collection="records" item="r" separator=",">
+                (#{r.accountId}, #{r.username}, #{r.address}, #{r.success}, #{r.loginTime})
+            </foreach>
+            </script>
+            """)
+    int insertRecords(@Param("records") Collection<LoginRecord> records);
+
+    /**
+     * Stores the last successful login of each account in one statement
+     * @param records one successful attempt per account
+     * @return the rows affected
+     */
+    @Insert("""
+            <script>
+            INSERT INTO db_account_login (account_id, login_time, login_address) VALUES
+            <foreach collection="records" item="r" separator=",">
+                (#{r.accountId}, #{r.loginTime}, #{r.address})
+            </foreach>
+            ON DUPLICATE KEY UPDATE login_time = VALUES(login_time), login_address = VALUES(login_address)
+            </script>
+            """)
+    int upsertLastLogins(@Param("records") Collection<LoginRecord> records);
+}
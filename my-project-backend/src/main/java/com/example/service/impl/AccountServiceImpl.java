@@ -10,10 +10,14 @@ import com.example.mapper.AccountMapper;
 import com.example.service.AccountService;
 import com.example.utils.Const;
 import com.example.utils.FlowUtils;
+import com.example.utils.RedisKeys;
+import com.example.utils.ReplicaRoutingDataSource;
+import com.example.utils.StripedLock;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,6 +25,8 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
+import java.time.Duration;
 import java.util.Date;
 import java.util.Map;
 import java.util.Random;
@@ -28,6 +34,9 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Service for handling account information
+ * With replicas configured, account lookups are read from a replica, writes
+ * and the checks guarding them go to the primary. An account written in the
+ * last moments is read from the primary too, the replicas may not have it yet
  */
 @Service
 public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> implements AccountService {
@@ -36,6 +45,10 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
     @Value("${spring.web.verify.mail-limit}")
     int verifyLimit;
 
+    // Rate limiting algorithm of the verification email limit
+    @Value("${spring.web.verify.algorithm:fixed-window}")
+    String verifyAlgorithm;
+
     @Resource
     AmqpTemplate rabbitTemplate;
 
@@ -48,6 +61,18 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
     @Resource
     FlowUtils flow;
 
+    @Resource
+    RedisKeys keys;
+
+    @Resource
+    DataSource dataSource;
+
+    // How long an account is read from the primary after it was written
+    @Value("${spring.datasource.routing.read-your-writes:10s}")
+    Duration readYourWrites;
+
+    private final StripedLock locks = new StripedLock(256);
+
     /**
      * Finds user details by username or email from the database
      * @param username the username
@@ -74,7 +99,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
      * @return the result of the operation, null if normal, otherwise the reason for the error
      */
     public String registerEmailVerifyCode(String type, String email, String address){
-        synchronized (address.intern()) {
+        return locks.withLock(address, () -> {
             if(!this.verifyLimit(address))
                 return "Too many requests, please try again later";
             Random random = new Random();
@@ -82,9 +107,9 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
             Map<String, Object> data = Map.of("type",type,"email", email, "code", code);
             rabbitTemplate.convertAndSend(Const.MQ_MAIL, data);
             stringRedisTemplate.opsForValue()
-                    .set(Const.VERIFY_EMAIL_DATA + email, String.valueOf(code), 3, TimeUnit.MINUTES);
+                    .set(keys.verifyData(email), String.valueOf(code), 3, TimeUnit.MINUTES);
             return null;
-        }
+        });
     }
 
     /**
@@ -106,6 +131,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
         if(!this.save(account)) {
             return "Internal error, registration failed";
         } else {
+            this.markWritten(email);
             this.deleteEmailVerifyCode(email);
             return null;
         }
@@ -124,6 +150,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
         String password = passwordEncoder.encode(info.getPassword());
         boolean update = this.update().eq("email", email).set("password", password).update();
         if(update) {
+            this.markWritten(email);
             this.deleteEmailVerifyCode(email);
         }
         return update ? null : "Update failed, please contact the administrator";
@@ -148,7 +175,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
      * @param email the email
      */
     private void deleteEmailVerifyCode(String email){
-        String key = Const.VERIFY_EMAIL_DATA + email;
+        String key = keys.verifyData(email);
         stringRedisTemplate.delete(key);
     }
 
@@ -158,7 +185,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
      * @return the verification code
      */
     private String getEmailVerifyCode(String email){
-        String key = Const.VERIFY_EMAIL_DATA + email;
+        String key = keys.verifyData(email);
         return stringRedisTemplate.opsForValue().get(key);
     }
 
@@ -168,22 +195,59 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
      * @return whether the verification passed
      */
     private boolean verifyLimit(String address) {
-        String key = Const.VERIFY_EMAIL_LIMIT + address;
-        return flow.limitOnceCheck(key, verifyLimit);
+        String key = keys.verifyLimit(address);
+        return flow.limitCheck(key, 1, verifyLimit, FlowUtils.Algorithm.of(verifyAlgorithm));
     }
 
     /**
-     * Finds an account by username or email
+     * Finds an account by username or email, on a replica if there are any
+     * Read from the primary again if the replica does not know the account or
+     * it was written recently, so a new account can log in and a new password
+     * counts right away
      * @param text the username or email
      * @return the account entity
      */
     public Account findAccountByNameOrEmail(String text){
+        if(!(dataSource instanceof ReplicaRoutingDataSource)) return this.selectAccount(text);
+        Account account = ReplicaRoutingDataSource.onReplica(() -> this.selectAccount(text));
+        if(account == null || this.writtenRecently(account.getEmail()))
+            return this.selectAccount(text);
+        return account;
+    }
+
+    private Account selectAccount(String text){
         return this.query()
                 .eq("username", text).or()
                 .eq("email", text)
                 .one();
     }
 
+    /**
+     * Marks an account as written, so it is read from the primary until the replicas caught up
+     * @param email the email of the account
+     */
+    private void markWritten(String email){
+        if(!(dataSource instanceof ReplicaRoutingDataSource)) return;
+        try {
+            stringRedisTemplate.opsForValue()
+                    .set(keys.accountWritten(email), "", readYourWrites.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (DataAccessException ignored) {
+            // Without the mark the account is only read from the primary while the replicas miss it
+        }
+    }
+
+    /**
+     * @param email the email of the account
+     * @return whether the account was written recently, or it cannot be told
+     */
+    private boolean writtenRecently(String email){
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(keys.accountWritten(email)));
+        } catch (DataAccessException exception) {
+            return true;
+        }
+    }
+
     /**
      * Checks if an account with the specified email already exists
      * @param email the email
@@ -0,0 +1,107 @@
+package com.example.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the observed latency, following the
+ * gradient algorithm of Netflix concurrency-limits
+ * Latency is averaged over windows of completed requests and compared with
+ * a slowly moving baseline. While it stays within the tolerance the limit
+ * grows by about the square root of itself, once it rises above the limit
+ * shrinks in proportion, so excess requests are turned away at the door
+ * instead of queueing for a thread, a connection or a slow backend
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // Number of windows the baseline latency averages over
+    private static final double BASELINE_WINDOWS = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int windowSize;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    // Guarded by this
+    private double estimate;
+    private double baseline;
+    private long windowNanos;
+    private int windowSamples;
+    private int windowMaxInflight;
+
+    /**
+     * @param initialLimit the limit before any latency has been observed
+     * @param minLimit the lowest the limit can go
+     * @param maxLimit the highest the limit can go
+     * @param tolerance how far latency may exceed the baseline before the limit shrinks, e.g. 1.5
+     * @param smoothing the weight of a new estimate, between 0 and 1
+     * @param windowSize the number of completed requests per window
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double tolerance, double smoothing, int windowSize) {
+        if(minLimit < 1 || minLimit > maxLimit)
+            throw new IllegalArgumentException("Invalid limit range " + minLimit + ".." + maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowSize = windowSize;
+        this.estimate = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimate;
+    }
+
+    /**
+     * Takes a slot if fewer requests than the limit are in flight
+     * @return whether the request may proceed, if so {@link #release(long)} must follow
+     */
+    public boolean tryAcquire() {
+        if(inflight.incrementAndGet() > limit) {
+            inflight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Frees the slot and feeds the latency of the request into the limit
+     * @param nanos the time the request took
+     */
+    public void release(long nanos) {
+        this.sample(nanos, inflight.getAndDecrement());
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    private synchronized void sample(long nanos, int inflight) {
+        windowNanos += nanos;
+        windowMaxInflight = Math.max(windowMaxInflight, inflight);
+        if(++windowSamples < windowSize) return;
+        double latency = (double) windowNanos / windowSamples;
+        int maxInflight = windowMaxInflight;
+        windowNanos = 0;
+        windowSamples = 0;
+        windowMaxInflight = 0;
+        if(baseline == 0) {
+            baseline = latency;
+        } else {
+            baseline += (latency - baseline) / BASELINE_WINDOWS;
+            // Let the baseline come back down quickly once a slow period is over
+            if(baseline > latency * 2) baseline *= 0.95;
+        }
+        // Requests are not limited by the current value, it says nothing about a higher one
+        if(maxInflight < estimate / 2) return;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseline / latency));
+        double next = estimate * gradient + Math.sqrt(estimate);
+        estimate = Math.max(minLimit, Math.min(maxLimit, estimate * (1 - smoothing) + next * smoothing));
+        limit = (int) estimate;
+    }
+}
@@ -7,17 +7,31 @@ public final class Const {
     // JWT token
     public final static String JWT_BLACK_LIST = "jwt:blacklist:";
     public final static String JWT_FREQUENCY = "jwt:frequency:";
+    // Snowflake worker ID leases
+    public final static String SNOWFLAKE_WORKER = "snowflake:worker:";
     // Request rate limiting
     public final static String FLOW_LIMIT_COUNTER = "flow:counter:";
     public final static String FLOW_LIMIT_BLOCK = "flow:block:";
     // Email verification code
     public final static String VERIFY_EMAIL_LIMIT = "verify:email:limit:";
     public final static String VERIFY_EMAIL_DATA = "verify:email:data:";
+    // Accounts written recently, read from the primary
+    public final static String ACCOUNT_WRITTEN = "account:written:";
+    // Compact key layout, see RedisKeys
+    public final static String COMPACT_JWT_BLACK_LIST = "j:b:";
+    public final static String COMPACT_JWT_FREQUENCY = "j:f:";
+    public final static String COMPACT_FLOW_LIMIT_COUNTER = "f:c:";
+    public final static String COMPACT_FLOW_LIMIT_BLOCK = "f:b:";
+    public final static String COMPACT_VERIFY_EMAIL_LIMIT = "v:l:";
+    public final static String COMPACT_VERIFY_EMAIL_DATA = "v:d:";
+    public final static String COMPACT_ACCOUNT_WRITTEN = "a:w:";
     // Filter priority
-    public final static int ORDER_FLOW_LIMIT = -101;
-    public final static int ORDER_CORS = -102;
+    public final static int ORDER_CONCURRENCY_LIMIT = -102;
+    public final static int ORDER_CORS = -103;
+    public final static int ORDER_REQUEST_CONTEXT = -104;
     // Custom request attributes
     public final static String ATTR_USER_ID = "userId";
+    public final static String ATTR_REQUEST_CONTEXT = "requestContext";
     // Message queue
     public final static String MQ_MAIL = "mail";
     // User roles
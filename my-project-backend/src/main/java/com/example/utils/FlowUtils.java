@@ -1,25 +1,139 @@
 package com.example.utils;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * General utility for rate limiting
  * Performs rate limiting operations for different situations
  * supports rate limit escalation
+ * While Redis is unavailable all checks fail open to {@link LocalQuotas},
+ * limits are then counted per node until Redis is back
  */
 @Slf4j
 @Component
 public class FlowUtils {
 
+    /*
+     * Checks all quotas of a request atomically. KEYS holds a state key and a block
+     * key per quota, ARGV its limit, period, block time and algorithm. Every quota is
+     * evaluated first and only if all of them pass are their states updated, so a
+     * denied request does not use up the other quotas. The clock is the one of the
+     * Redis server, which needs Redis 5 or newer for writes after TIME.
+     * Returns allowed (0 or 1), the index of the deciding quota, its limit,
+     * the remaining requests and the milliseconds until reset
+     */
+    private static final RedisScript<List> QUOTA_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('time')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local quotas = #KEYS / 2
+            for i = 1, quotas do
+                local blocked = redis.call('pttl', KEYS[i * 2])
+                if blocked > 0 then return {0, i, tonumber(ARGV[i * 4 - 3]), 0, blocked} end
+            end
+            local states = {}
+            local decisive, remaining, reset = 0, -1, 0
+            for i = 1, quotas do
+                local key, algorithm = KEYS[i * 2 - 1], ARGV[i * 4]
+                local limit, period = tonumber(ARGV[i * 4 - 3]), tonumber(ARGV[i * 4 - 2]) * 1000
+                local left, wait
+                if algorithm == 'gcra' then
+                    -- One theoretical arrival time per key, bursts of up to limit requests
+                    local interval = period / limit
+                    local tat = math.max(tonumber(redis.call('get', key)) or 0, now)
+                    local allowAt = tat + interval - period
+                    if now < allowAt then
+                        left, wait = -1, allowAt - now
+                    else
+                        states[i] = tat + interval
+                        left, wait = math.floor((now - allowAt) / interval), states[i] - now
+                    end
+                elseif algorithm == 'sliding-log' then
+                    -- The time of every request within the period
+                    redis.call('zremrangebyscore', key, '-inf', now - period)
+                    local count = redis.call('zcard', key)
+                    wait = period
+                    if count > 0 then wait = tonumber(redis.call('zrange', key, 0, 0, 'WITHSCORES')[2]) + period - now end
+                    if count >= limit then
+                        left = -1
+                    else
+                        states[i] = now .. '-' .. count
+                        left = limit - count - 1
+                    end
+                else
+                    -- A counter per period, starting with the first request
+                    local count = tonumber(redis.call('get', key)) or 0
+                    wait = redis.call('pttl', key)
+                    if wait < 0 then wait = period end
+                    if count >= limit then
+                        left = -1
+                    else
+                        states[i] = true
+                        left = limit - count - 1
+                    end
+                end
+                if left < 0 then
+                    local block = tonumber(ARGV[i * 4 - 1]) * 1000
+                    if block > 0 then
+                        wait = block
+                        redis.call('set', KEYS[i * 2], '', 'PX', block)
+                    end
+                    return {0, i, limit, 0, math.ceil(wait)}
+                end
+                if remaining < 0 or left < remaining then
+                    decisive, remaining, reset = i, left, math.ceil(wait)
+                end
+            end
+            for i = 1, quotas do
+                local key, algorithm = KEYS[i * 2 - 1], ARGV[i * 4]
+                local period = tonumber(ARGV[i * 4 - 2]) * 1000
+                if algorithm == 'gcra' then
+                    redis.call('set', key, states[i], 'PX', math.ceil(states[i] - now))
+                elseif algorithm == 'sliding-log' then
+                    redis.call('zadd', key, now, states[i])
+                    redis.call('pexpire', key, period)
+                elseif redis.call('incr', key) == 1 or redis.call('pttl', key) < 0 then
+                    redis.call('pexpire', key, period)
+                end
+            end
+            return {1, decisive, tonumber(ARGV[decisive * 4 - 3]), remaining, reset}
+            """, List.class);
+
     @Resource
     StringRedisTemplate template;
 
+    @Resource
+    RedisCircuitBreaker breaker;
+
+    @Resource
+    RedisKeys keys;
+
+    @Resource
+    RedisTrackingCache tracking;
+
+    final LocalQuotas local = new LocalQuotas(100_000);
+
+    @PostConstruct
+    public void init() {
+        // Redis counters are authoritative again, the local ones are stale
+        breaker.onTransition((from, to) -> {
+            if (to == RedisCircuitBreaker.State.CLOSED) local.clear();
+        });
+    }
+
     /**
      * Single frequency limit. After a successful request
      * further requests are not allowed during the cool down period
@@ -30,7 +144,8 @@ public class FlowUtils {
      * @return whether the rate limit check passed
      */
     public boolean limitOnceCheck(String key, int blockTime) {
-        return this.internalCheck(key, 1, blockTime, (overclock) -> false);
+        return this.orLocally(new Quota(key, 1, blockTime, 0),
+                () -> this.internalCheck(key, 1, blockTime, (overclock) -> false));
     }
 
     /**
@@ -46,11 +161,12 @@ public class FlowUtils {
      * @return whether the rate limit check passed
      */
     public boolean limitOnceUpgradeCheck(String key, int frequency, int baseTime, int upgradeTime) {
-        return this.internalCheck(key, frequency, baseTime, (overclock) -> {
+        // Locally only the base cool down applies, without the escalation
+        return this.orLocally(new Quota(key, 1, baseTime, 0), () -> this.internalCheck(key, frequency, baseTime, (overclock) -> {
             if (overclock)
                 template.opsForValue().set(key, "1", upgradeTime, TimeUnit.SECONDS);
             return false;
-        });
+        }));
     }
 
     /**
@@ -65,13 +181,197 @@ public class FlowUtils {
      * @return whether the rate limit check passed
      */
     public boolean limitPeriodCheck(String counterKey, String blockKey, int blockTime, int frequency, int period) {
-        return this.internalCheck(counterKey, frequency, period, (overclock) -> {
+        return this.orLocally(new Quota(counterKey, frequency, period, blockTime), () -> this.internalCheck(counterKey, frequency, period, (overclock) -> {
             if (overclock)
                 template.opsForValue().set(blockKey, "", blockTime, TimeUnit.SECONDS);
             return !overclock;
-        });
+        }));
     }
 
+    /**
+     * Rate limit on a single key with the given algorithm, without a block time
+     * e.g., at most 1 request per 60 seconds from one address
+     *
+     * @param key       the key
+     * @param limit     the requests allowed per period
+     * @param period    the period in seconds
+     * @param algorithm the algorithm
+     * @return whether the rate limit check passed
+     */
+    public boolean limitCheck(String key, int limit, int period, Algorithm algorithm) {
+        Quota quota = new Quota(key, limit, period, 0, algorithm);
+        return this.evaluate(List.of(quota), List.of(algorithm.stateKey(key), key + ":block")).allowed();
+    }
+
+    /**
+     * Checks several quotas of a request in a single Redis round trip
+     * A quota whose limit is exceeded blocks further requests for its block
+     * time, or until the algorithm lets requests through again if it has none.
+     * Blocks are remembered in the client-side cache, so a blocked client is
+     * turned away without asking Redis until the block ends
+     *
+     * @param quotas the quotas, at least one
+     * @return the decision, with the most restrictive quota if allowed
+     */
+    public Decision checkQuotas(List<Quota> quotas) {
+        List<String> stateKeys = new ArrayList<>(quotas.size() * 2);
+        long now = System.currentTimeMillis();
+        for (Quota quota : quotas) {
+            String blockKey = keys.flowBlock(quota.key());
+            RedisTrackingCache.Entry block = tracking.get(blockKey, "");
+            if (block != null && block.exists())
+                return new Decision(false, quota, quota.limit(), 0, block.expiresAt() - now);
+            stateKeys.add(keys.flowCounter(quota.algorithm().stateKey(quota.key())));
+            stateKeys.add(blockKey);
+        }
+        if (!tracking.isActive()) return this.evaluate(quotas, stateKeys);
+        long[] generations = new long[quotas.size()];
+        for (int i = 0; i < quotas.size(); i++) generations[i] = tracking.generation(stateKeys.get(i * 2 + 1));
+        Decision decision = this.evaluate(quotas, stateKeys);
+        if (!decision.allowed() && decision.quota().block() > 0) {
+            int i = quotas.indexOf(decision.quota());
+            tracking.put(stateKeys.get(i * 2 + 1), "", true, now + decision.resetMillis(), generations[i]);
+        }
+        return decision;
+    }
+
+    /**
+     * Runs the quota script
+     *
+     * @param quotas the quotas
+     * @param keys   the state and block key of each quota
+     * @return the decision
+     */
+    private Decision evaluate(List<Quota> quotas, List<String> keys) {
+        Object[] args = new Object[quotas.size() * 4];
+        for (int i = 0; i < quotas.size(); i++) {
+            Quota quota = quotas.get(i);
+            args[i * 4] = String.valueOf(quota.limit());
+            args[i * 4 + 1] = String.valueOf(quota.period());
+            args[i * 4 + 2] = String.valueOf(quota.block());
+            args[i * 4 + 3] = quota.algorithm().id;
+        }
+        List<?> result;
+        try {
+            result = template.execute(QUOTA_SCRIPT, keys, args);
+        } catch (RuntimeException exception) {
+            if (!RedisCircuitBreaker.isOutage(exception)) throw exception;
+            return local.check(quotas);
+        }
+        if (result == null || result.size() < 5) {
+            log.warn("Quota check returned {}, letting the request through", result);
+            return new Decision(true, quotas.get(0), quotas.get(0).limit(), quotas.get(0).limit(), 0);
+        }
+        Quota quota = quotas.get(((Number) result.get(1)).intValue() - 1);
+        return new Decision(((Number) result.get(0)).intValue() == 1, quota,
+                ((Number) result.get(2)).intValue(),
+                ((Number) result.get(3)).longValue(),
+                ((Number) result.get(4)).longValue());
+    }
+
+    /**
+     * Reduces a client address to the network it is counted under, e.g. with
+     * a prefix of 64 all addresses of an IPv6 /64 share one quota
+     *
+     * @param address     the IP address literal
+     * @param ipv4Prefix  the prefix length for IPv4 addresses
+     * @param ipv6Prefix  the prefix length for IPv6 addresses
+     * @return the network in CIDR notation, or the address itself if it cannot be parsed
+     */
+    public static String network(String address, int ipv4Prefix, int ipv6Prefix) {
+        // Only literals are parsed, anything else could cause a DNS lookup
+        if (!isAddressLiteral(address)) return address;
+        try {
+            byte[] bytes = InetAddress.getByName(address).getAddress();
+            int prefix = bytes.length == 4 ? ipv4Prefix : ipv6Prefix;
+            for (int bit = prefix; bit < bytes.length * 8; bit++) {
+                bytes[bit / 8] &= (byte) ~(0x80 >> (bit % 8));
+            }
+            return InetAddress.getByAddress(bytes).getHostAddress() + "/" + prefix;
+        } catch (UnknownHostException exception) {
+            return address;
+        }
+    }
+
+    private static boolean isAddressLiteral(String address) {
+        if (address == null || address.isEmpty()) return false;
+        if (address.indexOf(':') >= 0) return true;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rate limiting algorithms of {@link #checkQuotas(List)}
+     * FIXED_WINDOW counts requests per period starting with the first one, cheap
+     * but it lets up to twice the limit through around the end of a period.
+     * GCRA keeps one timestamp per key and spreads the limit evenly over the period
+     * with bursts of up to the limit. SLIDING_LOG keeps the time of every request
+     * and is exact, meant for keys with few requests such as verification mails
+     * Each algorithm keeps its state under its own key, a counter, a timestamp
+     * and a sorted set cannot share one, so changing the algorithm of a quota
+     * starts it afresh instead of failing with WRONGTYPE
+     */
+    public enum Algorithm {
+        FIXED_WINDOW("fixed-window", "w"), GCRA("gcra", "g"), SLIDING_LOG("sliding-log", "l");
+
+        final String id;
+        // Short, it is part of every state key
+        final String tag;
+
+        Algorithm(String id, String tag) {
+            this.id = id;
+            this.tag = tag;
+        }
+
+        /**
+         * @param key the key of a quota
+         * @return the key of its state under this algorithm
+         */
+        public String stateKey(String key) {
+            return key + ":" + tag;
+        }
+
+        /**
+         * @param id the configured name, e.g. "gcra"
+         * @return the algorithm
+         */
+        public static Algorithm of(String id) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.id.equalsIgnoreCase(id.trim())) return algorithm;
+            }
+            throw new IllegalArgumentException("Unknown rate limiting algorithm: " + id);
+        }
+    }
+
+    /**
+     * A quota on one dimension of a request
+     *
+     * @param key       the state key, without prefix
+     * @param limit     the requests allowed per period
+     * @param period    the period in seconds
+     * @param block     the block time in seconds once exceeded, 0 for none
+     * @param algorithm the algorithm
+     */
+    public record Quota(String key, int limit, int period, int block, Algorithm algorithm) {
+        public Quota(String key, int limit, int period, int block) {
+            this(key, limit, period, block, Algorithm.FIXED_WINDOW);
+        }
+    }
+
+    /**
+     * The result of a quota check
+     *
+     * @param allowed     whether the request may proceed
+     * @param quota       the exceeded quota, or the one with the fewest requests left
+     * @param limit       the limit of that quota
+     * @param remaining   the requests left in its current period
+     * @param resetMillis the time until its period or block ends
+     */
+    public record Decision(boolean allowed, Quota quota, int limit, long remaining, long resetMillis) {}
+
     /**
      * Main logic for internal rate limit checking
      *
@@ -95,6 +395,22 @@ public class FlowUtils {
         }
     }
 
+    /**
+     * Runs a check against Redis, or against the local quotas if Redis is unavailable
+     *
+     * @param quota  the local equivalent of the check
+     * @param remote the check against Redis
+     * @return whether the rate limit check passed
+     */
+    private boolean orLocally(Quota quota, Supplier<Boolean> remote) {
+        try {
+            return remote.get();
+        } catch (RuntimeException exception) {
+            if (!RedisCircuitBreaker.isOutage(exception)) throw exception;
+            return local.check(List.of(quota)).allowed();
+        }
+    }
+
     /**
      * Internal use, limit action and strategy
      */
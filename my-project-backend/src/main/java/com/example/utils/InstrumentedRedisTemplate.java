@@ -0,0 +1,58 @@
+package com.example.utils;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * StringRedisTemplate that reports every round trip to {@link RedisCommandMetrics}
+ * All operations (opsForValue, hasKey, delete, expire, scripts and pipelines)
+ * funnel through {@link #execute(RedisCallback, boolean, boolean)}, so one call
+ * is one command on the wire, or one flush in the case of a pipeline.
+ * The same funnel feeds the {@link RedisCircuitBreaker}, while it is open
+ * commands fail with a {@link RedisConnectionFailureException} right away
+ */
+public class InstrumentedRedisTemplate extends StringRedisTemplate {
+
+    private final RedisCommandMetrics metrics;
+    private final RedisCircuitBreaker breaker;
+
+    public InstrumentedRedisTemplate(RedisConnectionFactory connectionFactory, RedisCommandMetrics metrics) {
+        this(connectionFactory, metrics, null);
+    }
+
+    public InstrumentedRedisTemplate(RedisConnectionFactory connectionFactory, RedisCommandMetrics metrics, RedisCircuitBreaker breaker) {
+        super(connectionFactory);
+        this.metrics = metrics;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+        if(breaker == null) return this.timed(action, exposeConnection, pipeline);
+        if(!breaker.tryAcquire())
+            throw new RedisConnectionFailureException("Redis circuit breaker is open");
+        try {
+            T result = this.timed(action, exposeConnection, pipeline);
+            breaker.onSuccess();
+            return result;
+        } catch (RuntimeException exception) {
+            if(RedisCircuitBreaker.isOutage(exception)) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            throw exception;
+        }
+    }
+
+    private <T> T timed(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+        long start = System.nanoTime();
+        try {
+            return super.execute(action, exposeConnection, pipeline);
+        } finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -6,20 +6,35 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for handling JWT tokens
+ * A snapshot of the Redis blacklist is kept in memory and refreshed
+ * periodically, while Redis is unavailable tokens are checked against it.
+ * Tokens invalidated during that time are written back once Redis returns
  */
+@Slf4j
 @Component
 public class JwtUtils {
 
@@ -39,6 +54,11 @@ public class JwtUtils {
     // Number of attempts allowed before triggering extended block time
     @Value("${spring.security.jwt.limit.frequency}")
     private int limit_frequency;
+    // Refresh interval of the local blacklist snapshot, in seconds
+    @Value("${spring.security.jwt.blacklist-refresh:60}")
+    private int blacklist_refresh;
+
+    private static final int SNAPSHOT_BATCH = 500;
 
     @Resource
     StringRedisTemplate template;
@@ -46,6 +66,43 @@ public class JwtUtils {
     @Resource
     FlowUtils utils;
 
+    @Resource
+    RedisCircuitBreaker breaker;
+
+    @Resource
+    RedisKeys keys;
+
+    @Resource
+    RedisTrackingCache tracking;
+
+    // Token ID to expiration time in milliseconds, of all blacklisted tokens known to this node
+    private final Map<String, Long> blacklist = new ConcurrentHashMap<>();
+    // Tokens invalidated while Redis was unavailable
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService snapshot;
+
+    /**
+     * Starts refreshing the blacklist snapshot and writes back the
+     * tokens invalidated during an outage once Redis is available again
+     */
+    @PostConstruct
+    public void start() {
+        this.snapshot = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwt-blacklist");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshot.scheduleWithFixedDelay(this::refreshBlacklist, 0, blacklist_refresh, TimeUnit.SECONDS);
+        breaker.onTransition((from, to) -> {
+            if (to == RedisCircuitBreaker.State.CLOSED) snapshot.execute(this::resynchronize);
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshot != null) snapshot.shutdownNow();
+    }
+
     /**
      * Invalidates the specified JWT token
      * @param headerToken the token from the request header
@@ -111,7 +168,7 @@ public class JwtUtils {
         JWTVerifier jwtVerifier = JWT.require(algorithm).build();
         try {
             DecodedJWT verify = jwtVerifier.verify(token);
-            if (this.isInvalidToken(verify.getId())) return null;
+            if (this.isInvalidToken(verify.getId(), verify.getExpiresAt())) return null;
             Map<String, Claim> claims = verify.getClaims();
             return new Date().after(claims.get("exp").asDate()) ? null : verify;
         } catch (JWTVerificationException e) {
@@ -151,7 +208,7 @@ public class JwtUtils {
      * @return whether the frequency check passed
      */
     private boolean frequencyCheck(int userId) {
-        String key = Const.JWT_FREQUENCY + userId;
+        String key = keys.jwtFrequency(userId);
         return utils.limitOnceUpgradeCheck(key, limit_frequency, limit_base, limit_upgrade);
     }
 
@@ -167,26 +224,133 @@ public class JwtUtils {
     }
 
     /**
-     * Adds the token to the Redis blacklist
+     * Adds the token to the Redis blacklist, with its expiration time as value
      * @param uuid the token ID
      * @param time the expiration time
      * @return whether the operation was successful
      */
     private boolean deleteToken(String uuid, Date time) {
-        if (this.isInvalidToken(uuid))
+        if (this.isInvalidToken(uuid, time))
             return false;
-        Date now = new Date();
-        long expire = Math.max(time.getTime() - now.getTime(), 0);
-        template.opsForValue().set(Const.JWT_BLACK_LIST + uuid, "", expire, TimeUnit.MILLISECONDS);
+        blacklist.put(uuid, time.getTime());
+        try {
+            this.blacklistInRedis(uuid, time.getTime());
+            tracking.invalidate(keys.blacklist(uuid, time.getTime()));
+        } catch (RuntimeException exception) {
+            if (!RedisCircuitBreaker.isOutage(exception)) throw exception;
+            pending.put(uuid, time.getTime());
+        }
         return true;
     }
 
     /**
-     * Checks if the token is in the Redis blacklist
+     * Checks if the token is in the Redis blacklist, served from the client-side
+     * cache if possible, or from the local snapshot if Redis is unavailable
      * @param uuid the token ID
+     * @param time the expiration time, which selects the hash in the compact layout
      * @return whether the token is invalid
      */
-    private boolean isInvalidToken(String uuid) {
-        return Boolean.TRUE.equals(template.hasKey(Const.JWT_BLACK_LIST + uuid));
+    private boolean isInvalidToken(String uuid, Date time) {
+        String key = keys.blacklist(uuid, time.getTime());
+        try {
+            if (!keys.isCompact())
+                return tracking.exists(key, "", time.getTime(), () -> Boolean.TRUE.equals(template.hasKey(key)));
+            byte[] field = RedisKeys.tokenId(uuid);
+            return tracking.exists(key, uuid, time.getTime(), () -> Boolean.TRUE.equals(template.execute((RedisCallback<Boolean>) connection ->
+                    connection.hashCommands().hExists(RedisKeys.raw(key), field))));
+        } catch (RuntimeException exception) {
+            if (!RedisCircuitBreaker.isOutage(exception)) throw exception;
+            Long expiration = blacklist.get(uuid);
+            return expiration != null && expiration > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Writes a token to the Redis blacklist, in the compact layout the
+     * field and the expiration of its hash are set in one round trip
+     * @param uuid the token ID
+     * @param expiration the expiration time of the token in milliseconds
+     */
+    private void blacklistInRedis(String uuid, long expiration) {
+        String key = keys.blacklist(uuid, expiration);
+        if (!keys.isCompact()) {
+            long expire = Math.max(expiration - System.currentTimeMillis(), 1);
+            template.opsForValue().set(key, String.valueOf(expiration), expire, TimeUnit.MILLISECONDS);
+            return;
+        }
+        byte[] raw = RedisKeys.raw(key);
+        long end = RedisKeys.blacklistExpiration(key);
+        template.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hSet(raw, RedisKeys.tokenId(uuid), new byte[0]);
+            connection.keyCommands().pExpireAt(raw, end);
+            return null;
+        });
+    }
+
+    /**
+     * Loads the Redis blacklist into the local snapshot and drops expired entries
+     */
+    private void refreshBlacklist() {
+        if (!breaker.isClosed()) return;
+        long now = System.currentTimeMillis();
+        // Entries written before the value held the expiration time
+        long fallback = now + TimeUnit.HOURS.toMillis(expire);
+        ScanOptions options = ScanOptions.scanOptions().match(keys.blacklistPattern()).count(SNAPSHOT_BATCH).build();
+        try (Cursor<String> cursor = template.scan(options)) {
+            List<String> batch = new ArrayList<>(SNAPSHOT_BATCH);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == SNAPSHOT_BATCH) {
+                    this.loadBlacklist(batch, fallback);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) this.loadBlacklist(batch, fallback);
+            blacklist.values().removeIf(expiration -> expiration <= now);
+        } catch (DataAccessException exception) {
+            log.warn("Failed to refresh the JWT blacklist snapshot: {}", exception.getMessage());
+        }
+    }
+
+    private void loadBlacklist(List<String> batch, long fallback) {
+        if (keys.isCompact()) {
+            // The tokens of a hash expire within its hour
+            List<Object> fields = template.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : batch) connection.hashCommands().hKeys(RedisKeys.raw(key));
+                return null;
+            }, RedisSerializer.byteArray());
+            for (int i = 0; i < batch.size(); i++) {
+                long expiration = RedisKeys.blacklistExpiration(batch.get(i));
+                if (fields.get(i) instanceof Collection<?> ids)
+                    ids.forEach(id -> blacklist.put(RedisKeys.tokenId((byte[]) id), expiration));
+            }
+            return;
+        }
+        List<String> values = template.opsForValue().multiGet(batch);
+        if (values == null) return;
+        for (int i = 0; i < batch.size(); i++) {
+            String value = values.get(i);
+            if (value == null) continue;
+            long expiration = value.isEmpty() ? fallback : Long.parseLong(value);
+            blacklist.put(RedisKeys.blacklistToken(batch.get(i)), expiration);
+        }
+    }
+
+    /**
+     * Writes the tokens invalidated during an outage to Redis, then refreshes the snapshot
+     */
+    private void resynchronize() {
+        long now = System.currentTimeMillis();
+        try {
+            for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                if (entry.getValue() > now)
+                    this.blacklistInRedis(entry.getKey(), entry.getValue());
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+        } catch (DataAccessException exception) {
+            log.warn("Failed to write back {} invalidated tokens: {}", pending.size(), exception.getMessage());
+            return;
+        }
+        this.refreshBlacklist();
     }
 }
@@ -0,0 +1,107 @@
+package com.example.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory stand-in for the Redis quota script while Redis is unavailable
+ * Every quota is counted in a fixed window on this node only, whatever its
+ * algorithm, so the effective limit is multiplied by the number of nodes.
+ * That is good enough to keep a single client from flooding the application
+ * during an outage. Like the script, quotas are only counted if all of them pass
+ */
+public class LocalQuotas {
+
+    private final int capacity;
+    private final LongSupplier clock;
+    private final Map<String, Window> windows = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param capacity the number of keys kept before expired ones are purged
+     */
+    public LocalQuotas(int capacity) {
+        this(capacity, System::currentTimeMillis);
+    }
+
+    LocalQuotas(int capacity, LongSupplier clock) {
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    /**
+     * Checks and counts the quotas of a request
+     * @param quotas the quotas, at least one
+     * @return the decision, with the most restrictive quota if allowed
+     */
+    public FlowUtils.Decision check(List<FlowUtils.Quota> quotas) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            if(windows.size() >= capacity) windows.values().removeIf(window -> window.expired(now));
+            Window[] current = new Window[quotas.size()];
+            FlowUtils.Quota decisive = null;
+            long remaining = -1, reset = 0;
+            for (int i = 0; i < quotas.size(); i++) {
+                FlowUtils.Quota quota = quotas.get(i);
+                Window window = windows.get(quota.key());
+                if(window == null || window.expired(now))
+                    window = new Window(now + quota.period() * 1000L);
+                if(window.blockedUntil > now)
+                    return new FlowUtils.Decision(false, quota, quota.limit(), 0, window.blockedUntil - now);
+                if(window.count >= quota.limit()) {
+                    long wait = window.end - now;
+                    if(quota.block() > 0) {
+                        window.blockedUntil = now + quota.block() * 1000L;
+                        wait = quota.block() * 1000L;
+                        windows.put(quota.key(), window);
+                    }
+                    return new FlowUtils.Decision(false, quota, quota.limit(), 0, wait);
+                }
+                current[i] = window;
+                long left = quota.limit() - window.count - 1;
+                if(remaining < 0 || left < remaining) {
+                    decisive = quota;
+                    remaining = left;
+                    reset = window.end - now;
+                }
+            }
+            for (int i = 0; i < quotas.size(); i++) {
+                current[i].count++;
+                windows.put(quotas.get(i).key(), current[i]);
+            }
+            return new FlowUtils.Decision(true, decisive, decisive.limit(), remaining, reset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all windows, once Redis has taken over again
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            windows.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Window {
+        final long end;
+        long blockedUntil;
+        int count;
+
+        Window(long end) {
+            this.end = end;
+        }
+
+        boolean expired(long now) {
+            return end <= now && blockedUntil <= now;
+        }
+    }
+}
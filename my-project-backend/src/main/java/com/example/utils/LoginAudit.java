@@ -0,0 +1,164 @@
+package com.example.utils;
+
+import com.example.entity.dto.LoginRecord;
+import com.example.mapper.LoginAuditMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Login audit written behind the login path
+ * Attempts are buffered in memory and written by one background thread in
+ * multi-row inserts, once a batch is full or at the end of the interval. The
+ * last login of an account is kept per batch only from its latest successful
+ * attempt, so an account logging in many times costs one row update. The
+ * buffer is bounded, when the database cannot keep up new attempts are dropped
+ * and counted instead of slowing logins down. Closing writes what is buffered
+ */
+@Slf4j
+public class LoginAudit {
+
+    private static final int MAX_USERNAME = 255;
+    private static final int MAX_ADDRESS = 64;
+
+    private final LoginAuditMapper mapper;
+    private final BlockingQueue<LoginRecord> queue;
+    private final int batchSize;
+    private final AtomicBoolean triggered = new AtomicBoolean();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running;
+    private ScheduledExecutorService writer;
+
+    /**
+     * @param mapper the mapper writing the batches
+     * @param capacity the attempts buffered at most, further ones are dropped
+     * @param batchSize the attempts written in one statement at most
+     */
+    public LoginAudit(LoginAuditMapper mapper, int capacity, int batchSize) {
+        this.mapper = mapper;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts the background writer
+     * @param intervalMillis the time between writes of a partial batch
+     */
+    public void start(long intervalMillis) {
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        this.running = true;
+    }
+
+    /**
+     * Stops the background writer and writes the attempts still buffered,
+     * attempts recorded afterwards are ignored
+     */
+    public void close() {
+        this.running = false;
+        if(writer == null) return;
+        writer.shutdown();
+        try {
+            if(!writer.awaitTermination(10, TimeUnit.SECONDS))
+                log.warn("Login audit writer did not finish in time");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        this.flush();
+    }
+
+    /**
+     * Buffers a login attempt, never blocks
+     * @param record the attempt
+     * @return false if the audit is not running, or the buffer is full and it was dropped
+     */
+    public boolean record(LoginRecord record) {
+        if(!running) return false;
+        if(!queue.offer(this.truncate(record))) {
+            dropped.increment();
+            return false;
+        }
+        if(queue.size() >= batchSize && triggered.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> {
+                    triggered.set(false);
+                    this.flush();
+                });
+            } catch (RejectedExecutionException exception) {
+                // Closing, the remaining attempts are written by close
+                triggered.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes everything buffered, in batches
+     */
+    public void flush() {
+        List<LoginRecord> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            this.write(batch);
+            batch.clear();
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    private void write(List<LoginRecord> batch) {
+        Map<Integer, LoginRecord> lastLogins = new LinkedHashMap<>();
+        for (LoginRecord record : batch) {
+            if(record.isSuccess() && record.getAccountId() != null)
+                lastLogins.merge(record.getAccountId(), record,
+                        (previous, next) -> next.getLoginTime().before(previous.getLoginTime()) ? previous : next);
+        }
+        try {
+            mapper.insertRecords(batch);
+            if(!lastLogins.isEmpty()) mapper.upsertLastLogins(lastLogins.values());
+            written.add(batch.size());
+        } catch (RuntimeException exception) {
+            failed.add(batch.size());
+            log.warn("Could not write {} login records: {}", batch.size(), exception.getMessage());
+        }
+    }
+
+    private LoginRecord truncate(LoginRecord record) {
+        // An oversized value would fail the whole batch
+        if(record.getUsername() != null && record.getUsername().length() > MAX_USERNAME)
+            record.setUsername(record.getUsername().substring(0, MAX_USERNAME));
+        if(record.getAddress() != null && record.getAddress().length() > MAX_ADDRESS)
+            record.setAddress(record.getAddress().substring(0, MAX_ADDRESS));
+        return record;
+    }
+}
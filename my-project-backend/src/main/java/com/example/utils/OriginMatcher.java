@@ -0,0 +1,84 @@
+package com.example.utils;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Allowlist of CORS origins compiled from the comma separated
+ * spring.web.cors.origin setting, supported entries are
+ * - "*" allows any origin
+ * - exact origins, such as "https://www.example.com"
+ * - suffixes, such as "*.example.com", matching any scheme and subdomain
+ * - patterns, where "*" stands for any host or port characters, such as "http://localhost:*"
+ * Origins are compared case-insensitively
+ */
+public final class OriginMatcher {
+
+    private final boolean any;
+    private final Set<String> exact = new HashSet<>();
+    private final String[] suffixes;
+    private final Pattern pattern;
+
+    private OriginMatcher(boolean any, Set<String> exact, Set<String> suffixes, Pattern pattern) {
+        this.any = any;
+        this.exact.addAll(exact);
+        this.suffixes = suffixes.toArray(String[]::new);
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compiles the allowlist
+     * @param origins the comma separated entries
+     * @return the matcher
+     */
+    public static OriginMatcher compile(String origins) {
+        boolean any = false;
+        Set<String> exact = new HashSet<>();
+        Set<String> suffixes = new HashSet<>();
+        StringJoiner patterns = new StringJoiner("|");
+        for (String entry : origins.split(",")) {
+            String origin = entry.trim().toLowerCase(Locale.ROOT);
+            if(origin.isEmpty()) continue;
+            if(origin.equals("*")) {
+                any = true;
+            } else if(origin.indexOf('*') < 0) {
+                exact.add(origin);
+            } else if(origin.startsWith("*.") && origin.indexOf('*', 1) < 0) {
+                suffixes.add(origin.substring(1));
+            } else {
+                StringJoiner regex = new StringJoiner("[a-z0-9.-]*");
+                for (String part : origin.split("\\*", -1)) regex.add(Pattern.quote(part));
+                patterns.add(regex.toString());
+            }
+        }
+        Pattern pattern = patterns.length() == 0 ? null : Pattern.compile(patterns.toString());
+        return new OriginMatcher(any, exact, suffixes, pattern);
+    }
+
+    /**
+     * Whether every origin is allowed
+     * @return whether "*" was configured
+     */
+    public boolean matchesAny() {
+        return any;
+    }
+
+    /**
+     * Whether the origin is allowed
+     * @param origin the value of the Origin header
+     * @return whether it is allowed
+     */
+    public boolean matches(String origin) {
+        if(any) return true;
+        if(origin == null) return false;
+        String value = origin.toLowerCase(Locale.ROOT);
+        if(exact.contains(value)) return true;
+        for (String suffix : suffixes) {
+            if(value.endsWith(suffix)) return true;
+        }
+        return pattern != null && pattern.matcher(value).matches();
+    }
+}
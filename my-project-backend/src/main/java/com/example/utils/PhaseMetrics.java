@@ -0,0 +1,40 @@
+package com.example.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the per-request phase breakdown into one histogram per phase,
+ * published as the "http.server.phase" timer tagged with the phase name
+ */
+@Component
+public class PhaseMetrics {
+
+    private final PhaseTimer.Phase[] phases = PhaseTimer.Phase.values();
+    private final Timer[] timers;
+
+    public PhaseMetrics(MeterRegistry registry) {
+        this.timers = new Timer[phases.length];
+        for (PhaseTimer.Phase phase : phases) {
+            timers[phase.ordinal()] = Timer.builder("http.server.phase")
+                    .description("Time spent by requests in each filter chain phase")
+                    .tag("phase", phase.tag())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Records all phases a request has passed through
+     * @param timer the timer of the request
+     */
+    public void record(PhaseTimer timer) {
+        for (PhaseTimer.Phase phase : phases) {
+            if(timer.isRecorded(phase))
+                timers[phase.ordinal()].record(timer.nanos(phase), TimeUnit.NANOSECONDS);
+        }
+    }
+}
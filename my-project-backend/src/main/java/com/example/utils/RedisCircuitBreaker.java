@@ -0,0 +1,126 @@
+package com.example.utils;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker around all Redis access
+ * After a number of consecutive connection failures or timeouts the circuit
+ * opens and commands fail right away instead of waiting for the timeout,
+ * callers fall back to local state. Once the open duration has passed a single
+ * command is let through as a probe, if it succeeds the circuit closes again
+ */
+public class RedisCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger failures = new AtomicInteger();
+    private final List<BiConsumer<State, State>> listeners = new CopyOnWriteArrayList<>();
+    private volatile long openedAt;
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openMillis       how long the circuit stays open before a probe
+     */
+    public RedisCircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::nanoTime);
+    }
+
+    RedisCircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Asks whether a command may be sent to Redis
+     * @return true if the circuit is closed, or for the one probe once the open duration has passed
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if(current == State.CLOSED) return true;
+        if(current == State.OPEN && clock.getAsLong() - openedAt >= openNanos)
+            return this.transition(State.OPEN, State.HALF_OPEN);
+        return false;
+    }
+
+    /**
+     * Records a command that got an answer from Redis, even if it was an error reply
+     */
+    public void onSuccess() {
+        if(failures.get() != 0) failures.set(0);
+        if(state.get() != State.CLOSED) this.transition(State.HALF_OPEN, State.CLOSED);
+    }
+
+    /**
+     * Records a command that failed to reach Redis or timed out
+     */
+    public void onFailure() {
+        State current = state.get();
+        if(current == State.HALF_OPEN) {
+            openedAt = clock.getAsLong();
+            this.transition(State.HALF_OPEN, State.OPEN);
+        } else if(current == State.CLOSED && failures.incrementAndGet() >= failureThreshold) {
+            openedAt = clock.getAsLong();
+            this.transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    /**
+     * @return the current state
+     */
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * @return whether Redis is considered reachable
+     */
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    /**
+     * Registers a callback for state changes, called with the previous and the new
+     * state on the thread that caused the change, so it must not block
+     * @param listener the callback
+     */
+    public void onTransition(BiConsumer<State, State> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tells whether an exception means Redis could not be reached, as opposed
+     * to an error reply such as a failing script or a wrong type
+     * @param exception the exception thrown by the template
+     * @return whether the exception is an outage
+     */
+    public static boolean isOutage(Throwable exception) {
+        if(exception instanceof DataAccessResourceFailureException || exception instanceof QueryTimeoutException)
+            return true;
+        // Commands rejected while disconnected arrive as a plain RedisException
+        Throwable cause = exception.getCause();
+        return cause instanceof RedisException && !(cause instanceof RedisCommandExecutionException);
+    }
+
+    private boolean transition(State from, State to) {
+        if(!state.compareAndSet(from, to)) return false;
+        failures.set(0);
+        for (BiConsumer<State, State> listener : listeners) listener.accept(from, to);
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts and times every Redis command, both per request (see {@link RedisUsage})
+ * and in total, published as the "redis.commands" timer. The calling class and
+ * method is only resolved for a sample of the commands, walking the stack costs
+ * more than the rest of the bookkeeping, published as "redis.commands.sampled"
+ */
+@Component
+public class RedisCommandMetrics {
+
+    // One in this many commands is attributed to its caller
+    static final int CALLER_SAMPLE_RATE = 64;
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final MeterRegistry registry;
+    private final Timer commands;
+    private final Map<String, Timer> sampled = new ConcurrentHashMap<>();
+
+    public RedisCommandMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.commands = Timer.builder("redis.commands")
+                .description("Redis commands issued by the application")
+                .register(registry);
+    }
+
+    /**
+     * Records a command that has just completed
+     * @param nanos the time the command took
+     */
+    public void record(long nanos) {
+        RedisUsage usage = RedisUsage.current();
+        if(usage != null) usage.record(nanos);
+        commands.record(nanos, TimeUnit.NANOSECONDS);
+        if(ThreadLocalRandom.current().nextInt(CALLER_SAMPLE_RATE) != 0) return;
+        sampled.computeIfAbsent(this.resolveCaller(), caller -> Timer.builder("redis.commands.sampled")
+                        .description("Sample of one in " + CALLER_SAMPLE_RATE + " Redis commands by calling method")
+                        .tag("caller", caller)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Finds the first application frame outside the Redis instrumentation
+     * @return the caller in the form of "Class.method"
+     */
+    private String resolveCaller() {
+        return WALKER.walk(frames -> frames
+                .filter(frame -> {
+                    Class<?> clazz = frame.getDeclaringClass();
+                    return clazz.getName().startsWith("com.example.")
+                            && clazz != RedisCommandMetrics.class
+                            && clazz != InstrumentedRedisTemplate.class;
+                })
+                .findFirst()
+                .map(frame -> frame.getDeclaringClass().getSimpleName() + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+}
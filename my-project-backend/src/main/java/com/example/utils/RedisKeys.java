@@ -0,0 +1,166 @@
+package com.example.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Names of the Redis keys of the application, in one of two layouts
+ * TEXT uses the descriptive prefixes of {@link Const}, one string key per
+ * counter, block flag, blacklisted token and verification code.
+ * COMPACT uses short prefixes and keeps the token blacklist in small hashes,
+ * one per hour of token expiration and bucket, with the token ID as a 16 byte
+ * field. A hash of up to 128 fields is stored as a listpack, a few bytes per
+ * field instead of a key with its own dictionary entry and expiration.
+ * Rate limit states keep a key each, since every one of them needs its own
+ * expiration and field expiration needs Redis 7.4.
+ * Switching layouts starts with an empty blacklist and fresh counters
+ */
+public final class RedisKeys {
+
+    public enum Layout { TEXT, COMPACT }
+
+    private static final long HOUR = 3_600_000;
+
+    private final Layout layout;
+    private final int buckets;
+
+    private RedisKeys(Layout layout, int buckets) {
+        this.layout = layout;
+        this.buckets = buckets;
+    }
+
+    /**
+     * @return the layout with descriptive prefixes
+     */
+    public static RedisKeys text() {
+        return new RedisKeys(Layout.TEXT, 1);
+    }
+
+    /**
+     * @param buckets the blacklist hashes per hour, rounded up to a power of two,
+     *                about the tokens invalidated per hour divided by 100
+     * @return the compact layout
+     */
+    public static RedisKeys compact(int buckets) {
+        return new RedisKeys(Layout.COMPACT, Integer.highestOneBit(Math.max(1, buckets - 1)) << 1);
+    }
+
+    /**
+     * @param layout the configured name, "text" or "compact"
+     * @param buckets the blacklist hashes per hour of the compact layout
+     * @return the layout
+     */
+    public static RedisKeys of(String layout, int buckets) {
+        return switch (layout.trim().toLowerCase()) {
+            case "text" -> text();
+            case "compact" -> compact(buckets);
+            default -> throw new IllegalArgumentException("Unknown Redis key layout: " + layout);
+        };
+    }
+
+    public boolean isCompact() {
+        return layout == Layout.COMPACT;
+    }
+
+    public String flowCounter(String quota) {
+        return (this.isCompact() ? Const.COMPACT_FLOW_LIMIT_COUNTER : Const.FLOW_LIMIT_COUNTER) + quota;
+    }
+
+    public String flowBlock(String quota) {
+        return (this.isCompact() ? Const.COMPACT_FLOW_LIMIT_BLOCK : Const.FLOW_LIMIT_BLOCK) + quota;
+    }
+
+    public String jwtFrequency(int userId) {
+        return (this.isCompact() ? Const.COMPACT_JWT_FREQUENCY : Const.JWT_FREQUENCY) + userId;
+    }
+
+    public String verifyLimit(String address) {
+        return (this.isCompact() ? Const.COMPACT_VERIFY_EMAIL_LIMIT : Const.VERIFY_EMAIL_LIMIT) + address;
+    }
+
+    public String verifyData(String email) {
+        return (this.isCompact() ? Const.COMPACT_VERIFY_EMAIL_DATA : Const.VERIFY_EMAIL_DATA) + email;
+    }
+
+    /**
+     * @param email the email of an account written recently
+     * @return the key marking it, so it is read from the primary
+     */
+    public String accountWritten(String email) {
+        return (this.isCompact() ? Const.COMPACT_ACCOUNT_WRITTEN : Const.ACCOUNT_WRITTEN) + email;
+    }
+
+    /**
+     * @return the prefix of all blacklist keys
+     */
+    public String blacklistPrefix() {
+        return this.isCompact() ? Const.COMPACT_JWT_BLACK_LIST : Const.JWT_BLACK_LIST;
+    }
+
+    /**
+     * @return the pattern matching all blacklist keys, for SCAN
+     */
+    public String blacklistPattern() {
+        return this.blacklistPrefix() + "*";
+    }
+
+    /**
+     * The key holding a blacklisted token, a string key of its own in the
+     * text layout, the hash of its expiration hour and bucket in the compact one
+     * @param uuid the token ID
+     * @param expiresAt the expiration time of the token in milliseconds
+     * @return the key
+     */
+    public String blacklist(String uuid, long expiresAt) {
+        if(!this.isCompact()) return Const.JWT_BLACK_LIST + uuid;
+        long bucket = UUID.fromString(uuid).getLeastSignificantBits() & (buckets - 1);
+        return Const.COMPACT_JWT_BLACK_LIST + (expiresAt / HOUR) + ":" + bucket;
+    }
+
+    /**
+     * @param key a key of the compact blacklist
+     * @return the end of its hour in milliseconds, when all tokens in it have expired
+     */
+    public static long blacklistExpiration(String key) {
+        int end = key.indexOf(':', Const.COMPACT_JWT_BLACK_LIST.length());
+        return (Long.parseLong(key.substring(Const.COMPACT_JWT_BLACK_LIST.length(), end)) + 1) * HOUR;
+    }
+
+    /**
+     * @param key a key of the text blacklist
+     * @return the token ID
+     */
+    public static String blacklistToken(String key) {
+        return key.substring(Const.JWT_BLACK_LIST.length());
+    }
+
+    /**
+     * @param uuid the token ID in its 36 character form
+     * @return the 16 byte binary form
+     */
+    public static byte[] tokenId(String uuid) {
+        UUID id = UUID.fromString(uuid);
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * @param bytes the 16 byte binary form of a token ID
+     * @return the 36 character form
+     */
+    public static String tokenId(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    /**
+     * @param key a key
+     * @return the key as sent to Redis
+     */
+    public static byte[] raw(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
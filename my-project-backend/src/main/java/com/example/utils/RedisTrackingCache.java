@@ -0,0 +1,312 @@
+package com.example.utils;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.StatefulRedisConnectionImpl;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.SocketAddress;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side cache for read-mostly keys, kept correct by Redis server-assisted
+ * invalidation. A dedicated RESP3 connection enables tracking in broadcast mode
+ * for the cached key prefixes, so Redis pushes the name of every key written
+ * under them, by any node, and the local entry is dropped.
+ * Reads still go through the template, a read whose key was invalidated while
+ * it was in flight is not cached. Entries live at most the configured max age,
+ * which bounds the damage of a lost invalidation. While the tracking connection
+ * is down the cache is emptied and bypassed until tracking is enabled again.
+ * Needs Redis 6 or newer, otherwise it stays inactive
+ */
+@Slf4j
+public class RedisTrackingCache {
+
+    private static final int STRIPES = 1024;
+    // How often a full cache scans for expired entries at most, in milliseconds
+    private static final long PURGE_INTERVAL = 1000;
+
+    private final int capacity;
+    private final long maxAge;
+    private final LongSupplier clock;
+    private final Map<String, Map<String, Entry>> slots = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong nextPurge = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile boolean active;
+
+    private StatefulRedisConnection<String, String> connection;
+    private ScheduledExecutorService retry;
+
+    /**
+     * @param capacity the number of entries kept at most
+     * @param maxAgeMillis how long an entry is kept at most
+     */
+    public RedisTrackingCache(int capacity, long maxAgeMillis) {
+        this(capacity, maxAgeMillis, System::currentTimeMillis);
+    }
+
+    RedisTrackingCache(int capacity, long maxAgeMillis, LongSupplier clock) {
+        this.capacity = capacity;
+        this.maxAge = maxAgeMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens the tracking connection and enables tracking for the prefixes,
+     * the cache stays inactive if the server does not support it
+     * @param client the client of the application's connection factory
+     * @param prefixes the key prefixes to cache
+     */
+    public void connect(RedisClient client, String... prefixes) {
+        try {
+            this.connection = client.connect();
+            if(((StatefulRedisConnectionImpl<?, ?>) connection).getConnectionState().getNegotiatedProtocolVersion() != ProtocolVersion.RESP3) {
+                log.info("Redis does not speak RESP3, client-side caching is disabled");
+                connection.close();
+                return;
+            }
+            connection.addListener(this::onPush);
+            this.retry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "redis-tracking");
+                thread.setDaemon(true);
+                return thread;
+            });
+            client.addListener(new RedisConnectionStateListener() {
+                @Override
+                public void onRedisConnected(RedisChannelHandler<?, ?> channel, SocketAddress address) {
+                    if(channel == connection) scheduleTracking(prefixes);
+                }
+
+                @Override
+                public void onRedisDisconnected(RedisChannelHandler<?, ?> channel) {
+                    if(channel == connection) deactivate();
+                }
+            });
+            this.enableTracking(prefixes);
+            log.info("Client-side caching enabled for {}", List.of(prefixes));
+        } catch (RedisException exception) {
+            log.info("Client-side caching is disabled: {}", exception.getMessage());
+            this.close();
+        }
+    }
+
+    /**
+     * Closes the tracking connection
+     */
+    public void close() {
+        this.deactivate();
+        if(retry != null) retry.shutdownNow();
+        if(connection != null) connection.closeAsync();
+    }
+
+    /**
+     * Existence check served from the cache if possible
+     * @param key the key, which is what invalidations refer to
+     * @param field the hash field, or an empty string for the key itself
+     * @param expiresAt a time after which the answer must not be cached, in milliseconds
+     * @param loader the check against Redis
+     * @return whether the key or field exists
+     */
+    public boolean exists(String key, String field, long expiresAt, BooleanSupplier loader) {
+        if(!active) return loader.getAsBoolean();
+        Entry entry = this.get(key, field);
+        if(entry != null) {
+            hits.increment();
+            return entry.exists();
+        }
+        misses.increment();
+        long generation = this.generation(key);
+        boolean exists = loader.getAsBoolean();
+        this.put(key, field, exists, Math.min(expiresAt, clock.getAsLong() + maxAge), generation);
+        return exists;
+    }
+
+    /**
+     * @param key the key
+     * @param field the hash field, or an empty string for the key itself
+     * @return the live entry, or null
+     */
+    public Entry get(String key, String field) {
+        if(!active) return null;
+        Map<String, Entry> slot = slots.get(key);
+        Entry entry = slot == null ? null : slot.get(field);
+        return entry == null || entry.expiresAt() <= clock.getAsLong() ? null : entry;
+    }
+
+    /**
+     * Marks the state of a key before reading it, see {@link #put}
+     * @param key the key
+     * @return the current generation of the key
+     */
+    public long generation(String key) {
+        return generations.get(this.stripe(key));
+    }
+
+    /**
+     * Caches what was read from Redis, unless the key was invalidated since the read started
+     * A full cache drops its expired entries, at most once per purge interval, and
+     * otherwise makes room by evicting an arbitrary key
+     * @param key the key
+     * @param field the hash field, or an empty string for the key itself
+     * @param exists whether the key or field exists
+     * @param expiresAt when the entry expires, in milliseconds
+     * @param generation the generation of the key before it was read
+     */
+    public void put(String key, String field, boolean exists, long expiresAt, long generation) {
+        long now = clock.getAsLong();
+        if(!active || expiresAt <= now || this.generation(key) != generation) return;
+        if(size.get() >= capacity) {
+            long due = nextPurge.get();
+            if(now >= due && nextPurge.compareAndSet(due, now + PURGE_INTERVAL)) this.purge(now);
+            if(size.get() >= capacity && !this.evictAny()) return;
+        }
+        Entry entry = new Entry(exists, Math.min(expiresAt, now + maxAge));
+        slots.compute(key, (k, slot) -> {
+            if(slot == null) slot = new ConcurrentHashMap<>(2);
+            if(slot.put(field, entry) == null) size.incrementAndGet();
+            return slot;
+        });
+        // An invalidation may have arrived between the check and the insert
+        if(this.generation(key) != generation) this.evict(key);
+    }
+
+    /**
+     * Drops a key, when Redis reports that it was written or this node wrote it
+     * @param key the key
+     */
+    public void invalidate(String key) {
+        generations.incrementAndGet(this.stripe(key));
+        this.evict(key);
+        invalidations.increment();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long invalidations() {
+        return invalidations.sum();
+    }
+
+    void activate() {
+        this.active = true;
+    }
+
+    void deactivate() {
+        this.active = false;
+        for (int i = 0; i < STRIPES; i++) generations.incrementAndGet(i);
+        for (String key : slots.keySet()) this.evict(key);
+    }
+
+    private void enableTracking(String... prefixes) {
+        connection.sync().clientTracking(TrackingArgs.Builder.enabled().bcast().prefixes(prefixes));
+        // Invalidations were lost while tracking was off
+        this.deactivate();
+        this.activate();
+    }
+
+    /**
+     * Enables tracking again after a reconnect, retried every second until it works
+     */
+    private void scheduleTracking(String... prefixes) {
+        if(retry.isShutdown()) return;
+        retry.schedule(() -> {
+            try {
+                this.enableTracking(prefixes);
+                log.info("Client-side caching enabled again");
+            } catch (RedisException exception) {
+                log.warn("Could not enable Redis client tracking: {}", exception.getMessage());
+                if(connection.isOpen()) this.scheduleTracking(prefixes);
+            }
+        }, 1, TimeUnit.SECONDS);
+    }
+
+    private void onPush(PushMessage message) {
+        if(!"invalidate".equals(message.getType())) return;
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        if(content.size() < 2 || !(content.get(1) instanceof List<?> keys)) {
+            // A null key list means the whole database was flushed
+            this.deactivate();
+            this.activate();
+            return;
+        }
+        for (Object key : keys) this.invalidate(String.valueOf(key));
+    }
+
+    /*
+     * The entries of a key only change inside a compute of its slot, which holds the
+     * lock of the slot's bin, so the size counter moves together with the slots
+     */
+
+    private void evict(String key) {
+        slots.computeIfPresent(key, (k, slot) -> {
+            size.addAndGet(-slot.size());
+            return null;
+        });
+    }
+
+    private boolean evictAny() {
+        Iterator<String> keys = slots.keySet().iterator();
+        if(!keys.hasNext()) return false;
+        this.evict(keys.next());
+        return true;
+    }
+
+    private void purge(long now) {
+        for (String key : slots.keySet()) {
+            slots.computeIfPresent(key, (k, slot) -> {
+                int before = slot.size();
+                slot.values().removeIf(entry -> entry.expiresAt() <= now);
+                size.addAndGet(slot.size() - before);
+                return slot.isEmpty() ? null : slot;
+            });
+        }
+    }
+
+    private int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * A cached answer
+     * @param exists whether the key or field exists
+     * @param expiresAt when the entry expires, in milliseconds
+     */
+    public record Entry(boolean exists, long expiresAt) {}
+}
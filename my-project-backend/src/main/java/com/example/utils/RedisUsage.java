@@ -0,0 +1,58 @@
+package com.example.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Redis commands issued while serving a single request, kept in the
+ * request context so tests and the access log can read it back
+ */
+public final class RedisUsage {
+
+    private int commands = 0;
+    private long nanos = 0;
+
+    /**
+     * Gets the usage bound to the given request
+     * @param request the request
+     * @return the usage
+     */
+    public static RedisUsage of(HttpServletRequest request) {
+        return RequestContext.of(request).redisUsage();
+    }
+
+    /**
+     * Gets the usage of the request served by the current thread
+     * @return the usage, or null when not called from a request thread
+     */
+    static RedisUsage current() {
+        RequestContext context = RequestContext.current();
+        return context == null ? null : context.redisUsage();
+    }
+
+    void record(long nanos) {
+        this.commands++;
+        this.nanos += nanos;
+    }
+
+    /**
+     * Number of commands (round trips) issued
+     * @return the number of commands
+     */
+    public int commands() {
+        return commands;
+    }
+
+    /**
+     * Total time spent waiting on Redis
+     * @return the time in nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        long micros = nanos / 1000;
+        return commands + " cmds/" + micros / 1000 + "." + micros % 1000 / 100 + micros % 100 / 10 + "ms";
+    }
+}
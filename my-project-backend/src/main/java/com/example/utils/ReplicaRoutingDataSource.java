@@ -0,0 +1,236 @@
+package com.example.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Data source sending reads that tolerate replication lag to replicas
+ * Everything goes to the primary unless it runs inside {@link #onReplica},
+ * so writes and reads that must see them need no marking. Replicas are
+ * checked periodically, one that does not answer or lags behind more than
+ * the allowed lag is skipped, and reads go to the primary while none is usable
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbackConnections = new LongAdder();
+    private ScheduledExecutorService checks;
+
+    /**
+     * @param primary the primary
+     * @param replicas the replicas by name
+     * @param maxLagMillis the replication lag tolerated, in milliseconds
+     * @param lagQuery a query returning the lag of a replica in seconds, or null to only check that it answers
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, long maxLagMillis, String lagQuery) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.lagQuery = lagQuery == null || lagQuery.isBlank() ? null : lagQuery;
+    }
+
+    /**
+     * Runs a read on a replica, the connections it opens come from a usable replica
+     * @param read the read
+     * @return the result of the read
+     */
+    public static <T> T onReplica(Supplier<T> read) {
+        Boolean previous = REPLICA.get();
+        REPLICA.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if(previous == null) REPLICA.remove(); else REPLICA.set(previous);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return this.route(DataSource::getConnection);
+    }
+
+    /**
+     * Routes like {@link #getConnection()}, the chosen pool decides whether it
+     * supports other credentials, Hikari pools do not
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Opens a connection on the primary, or on a usable replica inside {@link #onReplica}
+     * @param connector how a connection is opened on the chosen data source
+     * @return the connection
+     * @throws SQLException if the primary fails to open it
+     */
+    private Connection route(Connector connector) throws SQLException {
+        if(REPLICA.get() == null) {
+            primaryConnections.increment();
+            return connector.connect(primary);
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if(!replica.usable(maxLagMillis)) continue;
+            try {
+                Connection connection = connector.connect(replica.dataSource());
+                replicaConnections.increment();
+                return connection;
+            } catch (SQLFeatureNotSupportedException exception) {
+                throw exception;
+            } catch (SQLException exception) {
+                log.warn("Replica {} is unavailable, falling back: {}", replica.name(), exception.getMessage());
+                replica.up = false;
+            }
+        }
+        fallbackConnections.increment();
+        return connector.connect(primary);
+    }
+
+    /**
+     * Starts checking the replicas, the first check runs right away
+     * @param intervalMillis the time between checks
+     */
+    public void start(long intervalMillis) {
+        this.checks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checks.scheduleWithFixedDelay(this::checkReplicas, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking the replicas and closes the pools
+     */
+    public void close() {
+        if(checks != null) checks.shutdownNow();
+        closeQuietly(primary);
+        for (Replica replica : replicas) closeQuietly(replica.dataSource());
+    }
+
+    /**
+     * Checks that each replica answers and measures its lag
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean wasUsable = replica.usable(maxLagMillis);
+            try (Connection connection = replica.dataSource().getConnection()) {
+                if(lagQuery == null) {
+                    replica.up = connection.isValid(5);
+                    replica.lagMillis = 0;
+                } else {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet result = statement.executeQuery(lagQuery)) {
+                        // No row, or NULL, means replication is not running
+                        double seconds = Double.NaN;
+                        if(result.next()) {
+                            seconds = result.getDouble(1);
+                            if(result.wasNull()) seconds = Double.NaN;
+                        }
+                        replica.up = !Double.isNaN(seconds);
+                        replica.lagMillis = replica.up ? Math.round(seconds * 1000) : 0;
+                    }
+                }
+            } catch (SQLException exception) {
+                replica.up = false;
+            }
+            boolean usable = replica.usable(maxLagMillis);
+            if(wasUsable && !usable) {
+                log.warn("Replica {} is not used, up: {}, lag: {} ms", replica.name(), replica.up, replica.lagMillis);
+            } else if(!wasUsable && usable) {
+                log.info("Replica {} is used again", replica.name());
+            }
+        }
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    public long primaryConnections() {
+        return primaryConnections.sum();
+    }
+
+    public long replicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    public long fallbackConnections() {
+        return fallbackConnections.sum();
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if(!(dataSource instanceof AutoCloseable closeable)) return;
+        try {
+            closeable.close();
+        } catch (Exception exception) {
+            log.warn("Could not close a pool: {}", exception.getMessage());
+        }
+    }
+
+    /**
+     * Opens a connection on a data source
+     */
+    private interface Connector {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * A replica and what the last check found, usable until the first check
+     */
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        volatile boolean up = true;
+        volatile long lagMillis;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean isUp() {
+            return up;
+        }
+
+        public long lagMillis() {
+            return lagMillis;
+        }
+
+        boolean usable(long maxLagMillis) {
+            return up && lagMillis <= maxLagMillis;
+        }
+    }
+}
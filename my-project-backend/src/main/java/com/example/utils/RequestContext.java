@@ -0,0 +1,128 @@
+package com.example.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Typed state of the request being served, created once per request by
+ * the request context filter and bound to the serving thread until the
+ * request leaves the filter chain
+ * The request ID is kept as a primitive and only turned into text when a
+ * log line or response body actually needs it
+ * The instance is also stored in the request attributes, so error and
+ * async dispatches of the same request pick up the same context
+ */
+public final class RequestContext {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final long requestId;
+    private final PhaseTimer timer = new PhaseTimer();
+    private final RedisUsage redisUsage = new RedisUsage();
+    private Integer userId;
+
+    private RequestContext(long requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Gets the context of the request, creating one on first use
+     * @param request the request
+     * @param requestId supplies the ID if the request has no context yet
+     * @return the context of the request
+     */
+    public static RequestContext of(HttpServletRequest request, LongSupplier requestId) {
+        Object context = request.getAttribute(Const.ATTR_REQUEST_CONTEXT);
+        if(context instanceof RequestContext requestContext) return requestContext;
+        RequestContext requestContext = new RequestContext(requestId.getAsLong());
+        request.setAttribute(Const.ATTR_REQUEST_CONTEXT, requestContext);
+        return requestContext;
+    }
+
+    /**
+     * Gets the context of the request, requests that did not pass the
+     * request context filter get a context with ID 0
+     * @param request the request
+     * @return the context of the request
+     */
+    public static RequestContext of(HttpServletRequest request) {
+        return of(request, () -> 0);
+    }
+
+    /**
+     * Gets the context bound to the current thread
+     * @return the context, or null when the thread is not serving a request
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * ID of the request served by the current thread
+     * @return the request ID, or 0 when the thread is not serving a request
+     */
+    public static long currentRequestId() {
+        RequestContext context = CURRENT.get();
+        return context == null ? 0 : context.requestId;
+    }
+
+    /**
+     * Binds a context to the current thread, null clears the binding
+     * @param context the context
+     * @return the context bound before, to restore afterwards
+     */
+    public static RequestContext bind(RequestContext context) {
+        RequestContext previous = CURRENT.get();
+        if(context == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(context);
+        return previous;
+    }
+
+    /**
+     * Carries the context of the current thread over to a task run by a
+     * thread pool or virtual thread, the worker is cleared again afterwards
+     * Timings and Redis usage are not thread safe, the submitting thread
+     * should wait for the task before the request completes
+     * @param task the task
+     * @return the task running with the current context
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestContext context = CURRENT.get();
+        if(context == null) return task;
+        return () -> {
+            RequestContext previous = bind(context);
+            try {
+                task.run();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    public long requestId() {
+        return requestId;
+    }
+
+    public PhaseTimer timer() {
+        return timer;
+    }
+
+    public RedisUsage redisUsage() {
+        return redisUsage;
+    }
+
+    /**
+     * ID of the authenticated user
+     * @return the user ID, or null for unauthenticated requests
+     */
+    public Integer userId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.utils;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Logback converter for %reqId, reads the request ID from the
+ * request context of the logging thread, so the ID is only formatted
+ * for log lines that are actually written
+ * Threads outside of a request are shown as "system"
+ */
+public class RequestIdConverter extends ClassicConverter {
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        RequestContext context = RequestContext.current();
+        return context == null ? "system" : Long.toString(context.requestId());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.utils;
+
+import com.example.entity.RestBean;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Writes RestBean results returned by controllers with fastjson2,
+ * so they are serialized exactly like the bodies written by the filters
+ * and security handlers ({@link RestBean#asJsonString()}, nulls included)
+ * Only writing is supported, request bodies are still read by Jackson
+ */
+public class RestBeanHttpMessageConverter extends AbstractHttpMessageConverter<RestBean<?>> {
+
+    public RestBeanHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return RestBean.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected RestBean<?> readInternal(@NonNull Class<? extends RestBean<?>> clazz,
+                                       @NonNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("RestBean is a response type only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull RestBean<?> bean, @NonNull HttpOutputMessage outputMessage) throws IOException {
+        RequestContext context = RequestContext.current();
+        PhaseTimer timer = context == null ? null : context.timer();
+        long start = timer == null ? 0 : timer.start();
+        bean.writeTo(outputMessage.getBody());
+        if(timer != null) timer.stop(PhaseTimer.Phase.SERIALIZE, start);
+    }
+}
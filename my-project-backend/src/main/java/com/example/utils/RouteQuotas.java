@@ -0,0 +1,87 @@
+package com.example.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-route quota overrides, compiled once from the configured list
+ * Entries are separated by commas and written as path=limit/period or
+ * path=limit/period/block, with period and block in seconds, optionally
+ * followed by the algorithm, e.g. /api/auth/ask-code=5/60 sliding-log.
+ * A path ending in /** covers everything below it, the longest matching
+ * prefix wins and exact paths are looked up first
+ */
+public final class RouteQuotas {
+
+    private static final RouteQuotas NONE = new RouteQuotas(Map.of(), List.of());
+
+    private final Map<String, Rule> exact;
+    private final List<Rule> prefixes;
+
+    private RouteQuotas(Map<String, Rule> exact, List<Rule> prefixes) {
+        this.exact = exact;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * @param config the configured list, may be empty
+     * @return the compiled overrides
+     */
+    public static RouteQuotas compile(String config) {
+        if(config == null || config.isBlank()) return NONE;
+        Map<String, Rule> exact = new HashMap<>();
+        List<Rule> prefixes = new ArrayList<>();
+        for (String entry : config.split(",")) {
+            entry = entry.trim();
+            if(entry.isEmpty()) continue;
+            int separator = entry.indexOf('=');
+            if(separator < 0)
+                throw new IllegalArgumentException("Route quota without '=': " + entry);
+            String path = entry.substring(0, separator).trim();
+            String[] parts = entry.substring(separator + 1).trim().split("\\s+");
+            if(parts.length > 2)
+                throw new IllegalArgumentException("Route quota must be limit/period[/block] [algorithm]: " + entry);
+            FlowUtils.Algorithm algorithm = parts.length == 2 ? FlowUtils.Algorithm.of(parts[1]) : null;
+            String[] values = parts[0].split("/");
+            if(values.length < 2 || values.length > 3)
+                throw new IllegalArgumentException("Route quota must be limit/period[/block] [algorithm]: " + entry);
+            int limit = Integer.parseInt(values[0].trim());
+            int period = Integer.parseInt(values[1].trim());
+            int block = values.length == 3 ? Integer.parseInt(values[2].trim()) : 0;
+            if(path.endsWith("/**")) {
+                prefixes.add(new Rule(path, path.substring(0, path.length() - 2), limit, period, block, algorithm));
+            } else {
+                exact.put(path, new Rule(path, path, limit, period, block, algorithm));
+            }
+        }
+        prefixes.sort(Comparator.comparingInt((Rule rule) -> rule.match().length()).reversed());
+        return new RouteQuotas(Map.copyOf(exact), List.copyOf(prefixes));
+    }
+
+    /**
+     * @param path the request path
+     * @return the override for the path, or null if there is none
+     */
+    public Rule find(String path) {
+        Rule rule = exact.get(path);
+        if(rule != null) return rule;
+        for (Rule prefix : prefixes) {
+            if(path.startsWith(prefix.match())) return prefix;
+        }
+        return null;
+    }
+
+    /**
+     * A configured override
+     * @param route the route as configured, used in the counter key
+     * @param match the exact path or the prefix it matches
+     * @param limit the requests allowed per period
+     * @param period the counting period in seconds
+     * @param block the block time in seconds once exceeded, 0 for none
+     * @param algorithm the algorithm, or null for the default of the limiter
+     */
+    public record Rule(String route, String match, int limit, int period, int block, FlowUtils.Algorithm algorithm) {}
+}
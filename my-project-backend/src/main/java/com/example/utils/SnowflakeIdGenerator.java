@@ -1,12 +1,17 @@
 package com.example.utils;
 
-import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
 
 /**
  * Snowflake algorithm ID generator
+ * The last timestamp and sequence are packed into a single AtomicLong
+ * and advanced with CAS, so callers never block each other
+ * The node part of the ID is leased at startup, see {@link WorkerIdLease}
  */
 
-@Component
 public class SnowflakeIdGenerator {
     private static final long START_TIMESTAMP = 1691087910202L;
 
@@ -22,60 +27,201 @@ public class SnowflakeIdGenerator {
     private static final long DATA_CENTER_ID_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
     private static final long TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS + DATA_CENTER_ID_BITS;
 
-    private final long dataCenterId;
-    private final long workerId;
-    private long lastTimestamp = -1L;
-    private long sequence = 0L;
+    // How far the clock may step backwards before ID generation is refused, in milliseconds
+    private static final long MAX_BACKWARD_MILLIS = 100L;
+    // Time to park when the sequence of the current millisecond is used up
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    // Number of IDs each thread reserves at once for nextBufferedId
+    private static final int BUFFER_SIZE = 32;
+
+    private volatile Node node;
+    private final LongSupplier clock;
+    // (timestamp - START_TIMESTAMP) << SEQUENCE_BITS | sequence of the last issued ID
+    private final AtomicLong state = new AtomicLong();
+    private final ThreadLocal<IdBuffer> buffers = ThreadLocal.withInitial(IdBuffer::new);
 
     public SnowflakeIdGenerator(){
         this(1, 1);
     }
 
-    private SnowflakeIdGenerator(long dataCenterId, long workerId) {
+    public SnowflakeIdGenerator(long dataCenterId, long workerId) {
+        this(dataCenterId, workerId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long dataCenterId, long workerId, LongSupplier clock) {
+        this.node = new Node(nodeBits(dataCenterId, workerId), 0);
+        this.clock = clock;
+    }
+
+    /**
+     * Switches this generator to another data center and worker ID,
+     * used when the leased worker ID turns out to be taken by another node
+     * Blocks buffered for the old node are dropped by their threads
+     * @param dataCenterId the data center ID
+     * @param workerId the worker ID
+     */
+    public synchronized void reassign(long dataCenterId, long workerId) {
+        this.node = new Node(nodeBits(dataCenterId, workerId), node.generation() + 1);
+    }
+
+    private static long nodeBits(long dataCenterId, long workerId) {
         if (dataCenterId > MAX_DATA_CENTER_ID || dataCenterId < 0) {
             throw new IllegalArgumentException("Data center ID can't be greater than " + MAX_DATA_CENTER_ID + " or less than 0");
         }
         if (workerId > MAX_WORKER_ID || workerId < 0) {
             throw new IllegalArgumentException("Worker ID can't be greater than " + MAX_WORKER_ID + " or less than 0");
         }
-        this.dataCenterId = dataCenterId;
-        this.workerId = workerId;
+        return (dataCenterId << DATA_CENTER_ID_SHIFT) | (workerId << WORKER_ID_SHIFT);
     }
 
     /**
-     * Generates a new Snowflake ID with locking
+     * Generates a new Snowflake ID without locking
+     * If the clock steps backwards slightly, IDs keep being issued from the
+     * last timestamp and borrow the following milliseconds once its sequence
+     * runs out. When the sequence of the current millisecond is exhausted
+     * the caller parks until the clock moves on.
      * @return the Snowflake ID
      */
 
-    public synchronized long nextId() {
-        long timestamp = getCurrentTimestamp();
-        if (timestamp < lastTimestamp) {
-            throw new IllegalStateException("Clock moved backwards. Refusing to generate ID.");
+    public long nextId() {
+        return compose(this.advance(1), node);
+    }
+
+    /**
+     * Reserves a block of consecutive IDs with a single CAS, the block never
+     * spans two milliseconds, so it can be smaller than requested
+     * @param count the number of IDs wanted
+     * @return the reserved block
+     */
+    public IdBlock reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        long first = this.advance(count);
+        return new IdBlock(compose(first, node), blockSize(first, count));
+    }
+
+    /**
+     * Generates the given number of IDs, reserving them block by block
+     * @param count the number of IDs
+     * @return the IDs in ascending order
+     */
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            IdBlock block = this.reserve(count - filled);
+            for (int i = 0; i < block.count(); i++) {
+                ids[filled++] = block.first() + i;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Generates a new Snowflake ID from a small block reserved by the
+     * calling thread, so the shared state is only touched once per block
+     * A block is dropped once its millisecond has passed, which keeps the
+     * IDs of one node ordered by time, or once the node was reassigned.
+     * Meant for long-lived pooled threads, a thread that only asks for
+     * one ID wastes the rest of its block.
+     * @return the Snowflake ID
+     */
+    public long nextBufferedId() {
+        IdBuffer buffer = buffers.get();
+        Node current = node;
+        if (buffer.remaining == 0 || buffer.generation != current.generation()
+                || buffer.timestamp < this.getCurrentTimestamp()) {
+            long first = this.advance(BUFFER_SIZE);
+            buffer.next = compose(first, current);
+            buffer.remaining = blockSize(first, BUFFER_SIZE);
+            buffer.timestamp = first >>> SEQUENCE_BITS;
+            buffer.generation = current.generation();
         }
-        if (timestamp == lastTimestamp) {
-            sequence = (sequence + 1) & MAX_SEQUENCE;
-            if (sequence == 0) {
-                timestamp = getNextTimestamp(lastTimestamp);
+        buffer.remaining--;
+        return buffer.next++;
+    }
+
+    /**
+     * Moves the shared state forward by up to count sequence numbers
+     * @param count the number of IDs wanted
+     * @return the packed timestamp and sequence of the first reserved ID
+     */
+    private long advance(int count) {
+        while (true) {
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long timestamp = this.getCurrentTimestamp();
+            long first;
+            if (timestamp > lastTimestamp) {
+                first = timestamp << SEQUENCE_BITS;
+            } else if ((current & MAX_SEQUENCE) != MAX_SEQUENCE) {
+                first = current + 1;
+            } else if (timestamp < lastTimestamp && lastTimestamp + 1 - timestamp <= MAX_BACKWARD_MILLIS) {
+                first = (lastTimestamp + 1) << SEQUENCE_BITS;
+            } else {
+                this.awaitNextTimestamp(lastTimestamp, timestamp);
+                continue;
+            }
+            if (state.compareAndSet(current, first + blockSize(first, count) - 1)) {
+                return first;
             }
-        } else {
-            sequence = 0L;
         }
-        lastTimestamp = timestamp;
-        return ((timestamp - START_TIMESTAMP) << TIMESTAMP_SHIFT) |
-                (dataCenterId << DATA_CENTER_ID_SHIFT) |
-                (workerId << WORKER_ID_SHIFT) |
-                sequence;
+    }
+
+    private static int blockSize(long first, int count) {
+        return (int) Math.min(count, MAX_SEQUENCE - (first & MAX_SEQUENCE) + 1);
+    }
+
+    private static long compose(long packed, Node node) {
+        return ((packed >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | node.bits() | (packed & MAX_SEQUENCE);
     }
 
     private long getCurrentTimestamp() {
-        return System.currentTimeMillis();
+        return clock.getAsLong() - START_TIMESTAMP;
     }
 
-    private long getNextTimestamp(long lastTimestamp) {
-        long timestamp = getCurrentTimestamp();
-        while (timestamp <= lastTimestamp) {
-            timestamp = getCurrentTimestamp();
+    /**
+     * Parks the caller until the clock catches up with the last issued timestamp
+     * @param lastTimestamp the last issued timestamp
+     * @param timestamp the current timestamp
+     */
+    private void awaitNextTimestamp(long lastTimestamp, long timestamp) {
+        if (lastTimestamp - timestamp > MAX_BACKWARD_MILLIS) {
+            throw new IllegalStateException("Clock moved backwards by " + (lastTimestamp - timestamp) + "ms. Refusing to generate ID.");
         }
-        return timestamp;
+        LockSupport.parkNanos(PARK_NANOS);
+    }
+
+    /**
+     * A block of consecutive IDs, from first to first + count - 1
+     * @param first the first ID
+     * @param count the number of IDs
+     */
+    public record IdBlock(long first, int count) {
+        public long get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return first + index;
+        }
+    }
+
+    /**
+     * The node part of the IDs, the generation counts reassignments
+     * @param bits the shifted data center and worker ID
+     * @param generation the number of reassignments before this node
+     */
+    private record Node(long bits, int generation) {
+    }
+
+    /**
+     * Per-thread remainder of a reserved block
+     */
+    private static final class IdBuffer {
+        long next;
+        int remaining;
+        long timestamp = -1;
+        int generation;
     }
 }
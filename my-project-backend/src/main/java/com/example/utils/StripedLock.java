@@ -0,0 +1,46 @@
+package com.example.utils;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks picked by the hash of a key, serializes work on the
+ * same key (such as an IP address) without interning strings
+ * ReentrantLock does not pin virtual threads while the holder waits on
+ * Redis or RabbitMQ, unlike a synchronized block
+ */
+public final class StripedLock {
+
+    private final ReentrantLock[] locks;
+
+    /**
+     * @param stripes the number of locks, rounded up to a power of two
+     */
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) locks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Runs the action while holding the lock of the key
+     * @param key the key
+     * @param action the action
+     * @return the result of the action
+     * @param <T> the result type
+     */
+    public <T> T withLock(String key, Supplier<T> action) {
+        ReentrantLock lock = this.lockOf(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockOf(String key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Leases a unique Snowflake node ID (data center and worker ID together)
+ * for this instance, so that request IDs of different nodes never collide
+ * The lease is a Redis key with a TTL that is renewed by a heartbeat and
+ * deleted on shutdown. If Redis is unreachable at startup, a lock file in
+ * a local directory is used instead, which only keeps instances on the
+ * same host apart. The heartbeat then keeps trying Redis and moves the
+ * node to a Redis lease as soon as it answers.
+ */
+@Slf4j
+@Component
+public class WorkerIdLease {
+
+    // 5 bits of data center ID and 5 bits of worker ID
+    public static final int NODE_COUNT = 1 << 10;
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    @Resource
+    StringRedisTemplate template;
+
+    // Lifetime of the Redis lease, renewed every third of it
+    @Value("${spring.snowflake.lease.ttl:30}")
+    int ttl;
+
+    // Directory for lock files when Redis is not available
+    @Value("${spring.snowflake.lease.dir:${java.io.tmpdir}/snowflake-leases}")
+    String directory;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile long nodeId = -1;
+    private volatile LongConsumer listener = id -> {};
+    private ScheduledExecutorService heartbeat;
+    private FileChannel channel;
+    // Held while the node ID comes from a lock file, only touched by startup, the heartbeat and shutdown
+    private volatile FileLock fileLock;
+
+    /**
+     * Leases a node ID, from Redis if possible, otherwise from a local lock file
+     * until Redis can be reached
+     */
+    @PostConstruct
+    public void acquire() {
+        try {
+            this.nodeId = this.acquireFromRedis(-1);
+            log.info("Leased Snowflake node ID {} from Redis", nodeId);
+        } catch (DataAccessException exception) {
+            log.warn("Redis is not available for Snowflake node ID leasing, falling back to local lock files: {}",
+                    exception.getMessage());
+            this.nodeId = this.acquireFromFile();
+            log.info("Leased Snowflake node ID {} from lock file in {}", nodeId, directory);
+        }
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snowflake-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(ttl / 3, 1);
+        heartbeat.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The leased node ID
+     * @return the node ID, between 0 and {@link #NODE_COUNT} - 1
+     */
+    public long nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Registers a callback that is told about the new node ID when the lease has to move
+     * It is told the current node ID right away, which may have moved since it was read
+     * @param listener the callback
+     */
+    public synchronized void onReassign(LongConsumer listener) {
+        this.listener = listener;
+        listener.accept(nodeId);
+    }
+
+    /**
+     * Releases the lease so the node ID is available right away for the next instance
+     */
+    @PreDestroy
+    public void release() {
+        if(heartbeat != null) {
+            heartbeat.shutdownNow();
+            try {
+                // A move to Redis that is under way must not race with the release
+                heartbeat.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(fileLock != null) {
+            this.releaseFile();
+            return;
+        }
+        try {
+            template.execute(RELEASE_SCRIPT, List.of(this.key(nodeId)), owner);
+        } catch (DataAccessException exception) {
+            log.warn("Failed to release Snowflake node ID {}: {}", nodeId, exception.getMessage());
+        }
+    }
+
+    void heartbeat() {
+        if(fileLock != null) {
+            this.moveToRedis();
+        } else {
+            this.renew();
+        }
+    }
+
+    /**
+     * Replaces the lock file with a Redis lease once Redis answers, until then
+     * instances on different hosts may hold the same node ID
+     */
+    private void moveToRedis() {
+        try {
+            long previous = nodeId;
+            this.moveTo(this.acquireFromRedis(-1));
+            this.releaseFile();
+            log.info("Redis is available, moved from Snowflake node ID {} of the lock file to leased ID {}",
+                    previous, nodeId);
+        } catch (DataAccessException | IllegalStateException exception) {
+            log.warn("Snowflake node ID {} is still leased from a lock file, Redis: {}", nodeId, exception.getMessage());
+        }
+    }
+
+    /**
+     * Heartbeat, extends the lease and detects when another node has taken over our ID
+     */
+    private void renew() {
+        try {
+            Long renewed = template.execute(RENEW_SCRIPT, List.of(this.key(nodeId)), owner, String.valueOf(ttl));
+            if(renewed != null && renewed == 1) return;
+            if(Boolean.TRUE.equals(template.opsForValue().setIfAbsent(this.key(nodeId), owner, ttl, TimeUnit.SECONDS))) {
+                log.warn("Snowflake node ID {} lease had expired and was taken back", nodeId);
+                return;
+            }
+            long previous = nodeId;
+            this.moveTo(this.acquireFromRedis(previous));
+            log.error("Snowflake node ID {} collided with another node, switched to {}", previous, nodeId);
+        } catch (DataAccessException | IllegalStateException exception) {
+            log.warn("Failed to renew Snowflake node ID {} lease: {}", nodeId, exception.getMessage());
+        }
+    }
+
+    private synchronized void moveTo(long id) {
+        this.nodeId = id;
+        listener.accept(id);
+    }
+
+    /**
+     * Claims the first free node ID, starting from a random offset to avoid
+     * instances that start together racing for the same keys
+     * @param exclude a node ID that must not be used, or -1
+     * @return the node ID
+     */
+    private long acquireFromRedis(long exclude) {
+        int offset = ThreadLocalRandom.current().nextInt(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            long id = (offset + i) % NODE_COUNT;
+            if(id == exclude) continue;
+            if(Boolean.TRUE.equals(template.opsForValue().setIfAbsent(this.key(id), owner, ttl, TimeUnit.SECONDS)))
+                return id;
+        }
+        throw new IllegalStateException("All " + NODE_COUNT + " Snowflake node IDs are leased");
+    }
+
+    /**
+     * Claims the first node ID whose lock file is not held by another process
+     * @return the node ID
+     */
+    private long acquireFromFile() {
+        try {
+            Path path = Path.of(directory);
+            Files.createDirectories(path);
+            for (int id = 0; id < NODE_COUNT; id++) {
+                FileChannel channel = FileChannel.open(path.resolve("worker-" + id + ".lock"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                try {
+                    FileLock lock = channel.tryLock();
+                    if(lock != null) {
+                        this.channel = channel;
+                        this.fileLock = lock;
+                        return id;
+                    }
+                } catch (OverlappingFileLockException ignored) {}
+                channel.close();
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to lease a Snowflake node ID from " + directory, exception);
+        }
+        throw new IllegalStateException("All " + NODE_COUNT + " Snowflake node IDs are locked in " + directory);
+    }
+
+    private void releaseFile() {
+        try {
+            fileLock.release();
+            channel.close();
+        } catch (IOException exception) {
+            log.warn("Failed to release Snowflake node ID lock file", exception);
+        }
+        this.fileLock = null;
+        this.channel = null;
+    }
+
+    private String key(long id) {
+        return Const.SNOWFLAKE_WORKER + id;
+    }
+}
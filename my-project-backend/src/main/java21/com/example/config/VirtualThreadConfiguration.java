@@ -0,0 +1,49 @@
+package com.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual thread configuration, only compiled by the virtual-threads Maven profile (JDK 21)
+ * Every request and every mail message gets its own virtual thread, so
+ * blocking on Redis, MySQL or RabbitMQ no longer holds a platform thread
+ * The remaining limits are the Tomcat connection limit and the connection pools
+ */
+@Slf4j
+@Configuration
+public class VirtualThreadConfiguration {
+
+    /**
+     * Replaces the Tomcat worker pool with a virtual thread per request
+     * @return the customizer
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Tomcat requests are handled on virtual threads");
+        return handler -> handler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Listener container factory for MailQueueListener, configured like the
+     * default one but running its consumers on virtual threads
+     * @param configurer applies the spring.rabbitmq.listener settings
+     * @param connectionFactory the connection factory
+     * @return the factory
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                               ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setTaskExecutor(new SimpleAsyncTaskExecutor(Thread.ofVirtual().name("mail-consumer-", 0).factory()));
+        return factory;
+    }
+}
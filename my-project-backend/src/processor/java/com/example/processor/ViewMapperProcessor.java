@@ -0,0 +1,182 @@
+package com.example.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a ViewMapper for every (DTO, VO) pair declared with ViewObjects
+ * The mapper copies fields with the same name through the Lombok getters and
+ * setters, a field whose type cannot be assigned fails the build
+ * This processor is compiled in a separate step before the main compilation,
+ * so it may only refer to the application types by name
+ */
+@SupportedAnnotationTypes(ViewMapperProcessor.ANNOTATION)
+public class ViewMapperProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "com.example.entity.ViewObjects";
+    private static final String MAPPER = "com.example.entity.ViewMapper";
+    private static final String BASE_DATA = "com.example.entity.BaseData";
+
+    private final Set<String> mappers = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if(roundEnv.processingOver()) {
+            this.writeServiceFile();
+            return false;
+        }
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if(annotation == null) return false;
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if(!(element instanceof TypeElement source)) continue;
+            if(!this.isBaseData(source)) {
+                this.error(source, source.getSimpleName() + " must implement BaseData to declare view objects");
+                continue;
+            }
+            for (TypeElement target : this.targetsOf(source, annotation)) {
+                this.generateMapper(source, target);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the VO types from the annotation, through mirrors since the classes are not loaded
+     * @param source the DTO type
+     * @param annotation the ViewObjects annotation type
+     * @return the VO types
+     */
+    private List<TypeElement> targetsOf(TypeElement source, TypeElement annotation) {
+        List<TypeElement> targets = new ArrayList<>();
+        for (AnnotationMirror mirror : source.getAnnotationMirrors()) {
+            if(!mirror.getAnnotationType().asElement().equals(annotation)) continue;
+            mirror.getElementValues().forEach((method, value) -> {
+                if(!method.getSimpleName().contentEquals("value")) return;
+                for (Object item : (List<?>) value.getValue()) {
+                    TypeMirror type = (TypeMirror) ((AnnotationValue) item).getValue();
+                    targets.add((TypeElement) ((DeclaredType) type).asElement());
+                }
+            });
+        }
+        return targets;
+    }
+
+    /**
+     * Writes the mapper class for one (DTO, VO) pair into the package of the DTO
+     * @param source the DTO type
+     * @param target the VO type
+     */
+    private void generateMapper(TypeElement source, TypeElement target) {
+        Types types = processingEnv.getTypeUtils();
+        Map<String, VariableElement> sourceFields = new HashMap<>();
+        for (VariableElement field : ElementFilter.fieldsIn(source.getEnclosedElements())) {
+            if(!field.getModifiers().contains(Modifier.STATIC))
+                sourceFields.put(field.getSimpleName().toString(), field);
+        }
+        StringBuilder copies = new StringBuilder();
+        boolean valid = true;
+        for (VariableElement field : ElementFilter.fieldsIn(target.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) continue;
+            String name = field.getSimpleName().toString();
+            VariableElement sourceField = sourceFields.get(name);
+            if(sourceField == null) continue;
+            if(!types.isAssignable(sourceField.asType(), field.asType())) {
+                this.error(source, "Field " + name + " of type " + sourceField.asType() + " in " + source.getSimpleName()
+                        + " cannot be copied to field " + name + " of type " + field.asType() + " in " + target.getSimpleName());
+                valid = false;
+                continue;
+            }
+            copies.append("        target.set").append(capitalize(name))
+                    .append("(source.").append(getterOf(sourceField)).append("());\n");
+        }
+        if(!valid) return;
+        String packageName = processingEnv.getElementUtils().getPackageOf(source).getQualifiedName().toString();
+        String simpleName = source.getSimpleName() + "_" + target.getSimpleName() + "Mapper";
+        String sourceName = source.getQualifiedName().toString();
+        String targetName = target.getQualifiedName().toString();
+        String code = "package " + packageName + ";\n\n" +
+                "@javax.annotation.processing.Generated(\"" + ViewMapperProcessor.class.getName() + "\")\n" +
+                "public final class " + simpleName + " implements " + MAPPER + "<" + sourceName + ", " + targetName + "> {\n\n" +
+                "    @Override\n" +
+                "    public Class<" + sourceName + "> sourceType() {\n" +
+                "        return " + sourceName + ".class;\n" +
+                "    }\n\n" +
+                "    @Override\n" +
+                "    public Class<" + targetName + "> targetType() {\n" +
+                "        return " + targetName + ".class;\n" +
+                "    }\n\n" +
+                "    @Override\n" +
+                "    public " + targetName + " map(" + sourceName + " source) {\n" +
+                "        " + targetName + " target = new " + targetName + "();\n" +
+                copies +
+                "        return target;\n" +
+                "    }\n" +
+                "}\n";
+        String qualifiedName = packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, source).openWriter()) {
+            writer.write(code);
+            mappers.add(qualifiedName);
+        } catch (IOException exception) {
+            this.error(source, "Failed to generate " + qualifiedName + ": " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Registers all generated mappers for ServiceLoader once all rounds are done
+     */
+    private void writeServiceFile() {
+        if(mappers.isEmpty()) return;
+        try {
+            FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + MAPPER);
+            try (Writer writer = file.openWriter()) {
+                for (String mapper : mappers) writer.write(mapper + "\n");
+            }
+        } catch (IOException exception) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to register view mappers: " + exception.getMessage());
+        }
+    }
+
+    private boolean isBaseData(TypeElement type) {
+        TypeElement baseData = processingEnv.getElementUtils().getTypeElement(BASE_DATA);
+        return baseData != null && processingEnv.getTypeUtils()
+                .isAssignable(type.asType(), processingEnv.getTypeUtils().erasure(baseData.asType()));
+    }
+
+    /**
+     * Name of the Lombok generated getter, primitive booleans use "is"
+     * @param field the field
+     * @return the getter name
+     */
+    private static String getterOf(VariableElement field) {
+        String prefix = field.asType().getKind() == TypeKind.BOOLEAN ? "is" : "get";
+        return prefix + capitalize(field.getSimpleName().toString());
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example;
+
+import com.github.fppt.jedismock.RedisServer;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Client errors are answered in-line with pre-encoded bodies, without a forward to /error
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ErrorResponseTests {
+
+    @Resource
+    MockMvc mvc;
+
+    // Left running until the JVM exits, the cached context still talks to it while shutting down
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) throws IOException {
+        RedisServer redis = RedisServer.newRedisServer();
+        redis.start();
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getBindPort);
+    }
+
+    @Test
+    void unknownEndpointIsNotFound() throws Exception {
+        mvc.perform(get("/api/auth/does-not-exist"))
+                .andExpect(status().isNotFound())
+                .andExpect(forwardedUrl(null))
+                .andExpect(jsonPath("$.code").value(404))
+                .andExpect(jsonPath("$.message").value("Requested endpoint does not exist"));
+    }
+
+    @Test
+    void wrongMethodIsNotAllowed() throws Exception {
+        mvc.perform(get("/api/auth/register"))
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(header().string("Allow", "POST"))
+                .andExpect(jsonPath("$.code").value(405));
+    }
+
+    @Test
+    void missingParameterIsBadRequest() throws Exception {
+        mvc.perform(get("/api/auth/ask-code"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("Invalid request parameters"));
+    }
+
+    @Test
+    void constraintViolationIsAFailureResult() throws Exception {
+        // The frontend only shows the message of 2xx responses
+        mvc.perform(get("/api/auth/ask-code").param("email", "not-an-email").param("type", "register"))
+                .andExpect(status().isOk())
+                .andExpect(forwardedUrl(null))
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("Invalid request parameters"));
+    }
+}
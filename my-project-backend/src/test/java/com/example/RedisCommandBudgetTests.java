@@ -0,0 +1,69 @@
+package com.example;
+
+import com.example.utils.JwtUtils;
+import com.example.utils.RedisUsage;
+import com.github.fppt.jedismock.RedisServer;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Round-trip budgets for the request hot paths, a change that makes
+ * a request talk to Redis more often than allowed fails the build
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class RedisCommandBudgetTests {
+
+    // The token blacklist lookup plus one quota script for flow limiting
+    static final int AUTHENTICATED_GET_BUDGET = 2;
+
+    static RedisServer redis;
+
+    @Resource
+    MockMvc mvc;
+
+    @Resource
+    JwtUtils utils;
+
+    // Left running until the JVM exits, the cached context still talks to it while shutting down
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) throws IOException {
+        redis = RedisServer.newRedisServer();
+        redis.start();
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", redis::getBindPort);
+    }
+
+    @Test
+    void authenticatedGetStaysWithinBudget() throws Exception {
+        UserDetails user = User.withUsername("budget").password("******").roles("user").build();
+        String token = utils.createJwt(user, "budget", 1);
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mvc.perform(get("/api/budget")
+                            .header("Authorization", "Bearer " + token))
+                    .andReturn();
+            assertRedisBudget(result, AUTHENTICATED_GET_BUDGET);
+        }
+    }
+
+    private static void assertRedisBudget(MvcResult result, int budget) {
+        RedisUsage usage = RedisUsage.of(result.getRequest());
+        assertNotNull(usage, "Request did not reach Redis");
+        assertTrue(usage.commands() <= budget,
+                "Request issued " + usage.commands() + " Redis commands, budget is " + budget);
+    }
+}
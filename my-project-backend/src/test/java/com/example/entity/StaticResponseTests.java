@@ -0,0 +1,25 @@
+package com.example.entity;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+class StaticResponseTests {
+
+    @Test
+    void encodesSameBodyAsRestBean() {
+        StaticResponse response = StaticResponse.forbidden("Too many requests, please try again later");
+        for (long id : new long[]{0, 7, 1787654321098765432L, Long.MAX_VALUE, -1, Long.MIN_VALUE}) {
+            String expected = new RestBean<>(id, 403, null, "Too many requests, please try again later").asJsonString();
+            Assertions.assertEquals(expected, new String(response.encode(id), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void keepsNonAsciiMessages() {
+        StaticResponse response = StaticResponse.failure(400, "请求过于频繁 \"quoted\"");
+        String expected = new RestBean<>(42, 400, null, "请求过于频繁 \"quoted\"").asJsonString();
+        Assertions.assertEquals(expected, new String(response.encode(42), StandardCharsets.UTF_8));
+    }
+}
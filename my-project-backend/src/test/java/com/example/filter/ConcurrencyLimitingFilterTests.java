@@ -0,0 +1,65 @@
+package com.example.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ConcurrencyLimitingFilterTests {
+
+    private ConcurrencyLimitingFilter filter(SimpleMeterRegistry registry) {
+        ConcurrencyLimitingFilter filter = new ConcurrencyLimitingFilter();
+        filter.registry = registry;
+        filter.generalInitial = filter.generalMin = filter.generalMax = 1;
+        filter.loginInitial = filter.loginMin = filter.loginMax = 1;
+        filter.tolerance = 1.5;
+        filter.window = 10;
+        filter.createLimits();
+        return filter;
+    }
+
+    /**
+     * Sends a second request through the filter while the first is still in the chain
+     */
+    private MockHttpServletResponse nested(ConcurrencyLimitingFilter filter, MockHttpServletRequest first,
+                                           MockHttpServletRequest second) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(first, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request, jakarta.servlet.ServletResponse ignored) {
+                try {
+                    filter.doFilter(second, response, new MockFilterChain());
+                } catch (Exception exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        });
+        return response;
+    }
+
+    @Test
+    void shedsRequestsBeyondTheLimitWithA503() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrencyLimitingFilter filter = filter(registry);
+        MockHttpServletResponse response = nested(filter,
+                new MockHttpServletRequest("GET", "/api/test"),
+                new MockHttpServletRequest("GET", "/api/test"));
+        Assertions.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        Assertions.assertEquals("1", response.getHeader("Retry-After"));
+        Assertions.assertTrue(response.getContentAsString().contains("\"code\":503"));
+        Assertions.assertEquals(1.0, registry.get("http.server.concurrency.rejected").tag("budget", "general").counter().count());
+        Assertions.assertEquals(0.0, registry.get("http.server.concurrency.inflight").tag("budget", "general").gauge().value());
+    }
+
+    @Test
+    void loginHasItsOwnBudget() throws Exception {
+        ConcurrencyLimitingFilter filter = filter(new SimpleMeterRegistry());
+        MockHttpServletResponse response = nested(filter,
+                new MockHttpServletRequest("GET", "/api/test"),
+                new MockHttpServletRequest("POST", "/api/auth/login"));
+        Assertions.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    }
+}
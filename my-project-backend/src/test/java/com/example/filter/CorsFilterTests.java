@@ -0,0 +1,73 @@
+package com.example.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class CorsFilterTests {
+
+    private CorsFilter filter(String origin, boolean credentials) {
+        CorsFilter filter = new CorsFilter();
+        filter.origin = origin;
+        filter.credentials = credentials;
+        filter.methods = "GET, POST";
+        filter.maxAge = 600;
+        filter.init();
+        return filter;
+    }
+
+    private MockHttpServletRequest preflight(String origin, String method) {
+        MockHttpServletRequest request = new MockHttpServletRequest("OPTIONS", "/api/auth/login");
+        request.addHeader("Origin", origin);
+        request.addHeader("Access-Control-Request-Method", method);
+        return request;
+    }
+
+    @Test
+    void preflightIsAnsweredWithoutTheChain() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter("https://www.example.com", true).doFilter(preflight("https://www.example.com", "POST"), response, chain);
+        Assertions.assertNull(chain.getRequest());
+        Assertions.assertEquals(204, response.getStatus());
+        Assertions.assertEquals("https://www.example.com", response.getHeader("Access-Control-Allow-Origin"));
+        Assertions.assertEquals("Origin", response.getHeader("Vary"));
+        Assertions.assertEquals("true", response.getHeader("Access-Control-Allow-Credentials"));
+        Assertions.assertEquals("600", response.getHeader("Access-Control-Max-Age"));
+    }
+
+    @Test
+    void preflightFromUnknownOriginOrMethodIsRejected() throws Exception {
+        CorsFilter filter = filter("https://www.example.com", false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(preflight("https://evil.test", "POST"), response, new MockFilterChain());
+        Assertions.assertEquals(403, response.getStatus());
+        Assertions.assertNull(response.getHeader("Access-Control-Allow-Origin"));
+        response = new MockHttpServletResponse();
+        filter.doFilter(preflight("https://www.example.com", "DELETE"), response, new MockFilterChain());
+        Assertions.assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void wildcardWithoutCredentialsSendsLiteralStar() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/auth/ask-code");
+        request.addHeader("Origin", "https://anything.test");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter("*", false).doFilter(request, response, chain);
+        Assertions.assertNotNull(chain.getRequest());
+        Assertions.assertEquals("*", response.getHeader("Access-Control-Allow-Origin"));
+        Assertions.assertNull(response.getHeader("Vary"));
+    }
+
+    @Test
+    void requestsWithoutOriginGetNoCorsHeaders() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter("*", false).doFilter(new MockHttpServletRequest("GET", "/api/auth/ask-code"), response, chain);
+        Assertions.assertNotNull(chain.getRequest());
+        Assertions.assertTrue(response.getHeaderNames().isEmpty());
+    }
+}
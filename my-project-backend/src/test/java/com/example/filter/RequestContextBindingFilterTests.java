@@ -0,0 +1,61 @@
+package com.example.filter;
+
+import com.example.utils.RequestContext;
+import com.example.utils.SnowflakeIdGenerator;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class RequestContextBindingFilterTests {
+
+    @Test
+    void filterBindsAndAlwaysClears() throws Exception {
+        RequestContextBindingFilter filter = new RequestContextBindingFilter();
+        filter.generator = new SnowflakeIdGenerator();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        AtomicLong seen = new AtomicLong();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.set(RequestContext.currentRequestId());
+                throw new IllegalStateException("handler failed");
+            }
+        });
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> filter.doFilter(request, new MockHttpServletResponse(), chain));
+        Assertions.assertNotEquals(0, seen.get());
+        Assertions.assertEquals(seen.get(), RequestContext.of(request).requestId());
+        Assertions.assertNull(RequestContext.current());
+    }
+
+    @Test
+    void wrapCarriesContextToPoolThreads() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContext context = RequestContext.of(request, () -> 42);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AtomicLong inside = new AtomicLong(-1);
+        AtomicLong after = new AtomicLong(-1);
+        RequestContext previous = RequestContext.bind(context);
+        try {
+            pool.submit(RequestContext.wrap(() -> inside.set(RequestContext.currentRequestId()))).get();
+        } finally {
+            RequestContext.bind(previous);
+        }
+        pool.submit(() -> after.set(RequestContext.currentRequestId())).get();
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(42, inside.get());
+        Assertions.assertEquals(0, after.get());
+        Assertions.assertNull(RequestContext.current());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTests {
+
+    private static final long MILLIS = 1_000_000L;
+
+    /**
+     * Completes one window with the given concurrency and latency
+     */
+    private void window(AdaptiveConcurrencyLimit limit, int concurrency, long nanos) {
+        for (int i = 0; i < concurrency; i++) Assertions.assertTrue(limit.tryAcquire());
+        for (int i = 0; i < concurrency; i++) limit.release(nanos);
+    }
+
+    @Test
+    void rejectsOnceTheLimitIsInFlight() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 1.5, 0.2, 10);
+        Assertions.assertTrue(limit.tryAcquire());
+        Assertions.assertTrue(limit.tryAcquire());
+        Assertions.assertFalse(limit.tryAcquire());
+        Assertions.assertEquals(2, limit.inflight());
+        limit.release(MILLIS);
+        Assertions.assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 100, 1.5, 0.2, 20);
+        for (int i = 0; i < 20; i++) window(limit, limit.limit(), 10 * MILLIS);
+        int grown = limit.limit();
+        Assertions.assertTrue(grown > 20, "limit did not grow: " + grown);
+        for (int i = 0; i < 20; i++) window(limit, limit.limit(), 100 * MILLIS);
+        Assertions.assertTrue(limit.limit() < grown / 2, "limit did not shrink: " + limit.limit());
+        Assertions.assertTrue(limit.limit() >= 5);
+    }
+
+    @Test
+    void doesNotGrowWhenTheLimitIsNotUsed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 100, 1.5, 0.2, 20);
+        for (int i = 0; i < 20; i++) window(limit, 2, 10 * MILLIS);
+        Assertions.assertEquals(20, limit.limit());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.utils;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+class FlowUtilsTests {
+
+    static RedisServer redis;
+    static LettuceConnectionFactory factory;
+    static FlowUtils utils;
+
+    @BeforeAll
+    static void start() throws IOException {
+        redis = RedisServer.newRedisServer();
+        redis.start();
+        factory = new LettuceConnectionFactory(redis.getHost(), redis.getBindPort());
+        factory.afterPropertiesSet();
+        utils = new FlowUtils();
+        utils.template = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()));
+        utils.keys = RedisKeys.text();
+        utils.tracking = new RedisTrackingCache(1000, 60_000);
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        factory.destroy();
+        redis.stop();
+    }
+
+    @Test
+    void reportsTheMostRestrictiveQuota() {
+        List<FlowUtils.Quota> quotas = List.of(
+                new FlowUtils.Quota("test:wide", 100, 60, 0),
+                new FlowUtils.Quota("test:narrow", 3, 60, 0));
+        FlowUtils.Decision decision = utils.checkQuotas(quotas);
+        Assertions.assertTrue(decision.allowed());
+        Assertions.assertEquals("test:narrow", decision.quota().key());
+        Assertions.assertEquals(3, decision.limit());
+        Assertions.assertEquals(2, decision.remaining());
+        Assertions.assertTrue(decision.resetMillis() > 0 && decision.resetMillis() <= 60_000);
+    }
+
+    @Test
+    void exceededQuotaBlocksWithoutCountingTheOthers() {
+        List<FlowUtils.Quota> quotas = List.of(
+                new FlowUtils.Quota("block:ip", 2, 60, 30),
+                new FlowUtils.Quota("block:user", 100, 60, 0));
+        Assertions.assertTrue(utils.checkQuotas(quotas).allowed());
+        Assertions.assertTrue(utils.checkQuotas(quotas).allowed());
+        FlowUtils.Decision denied = utils.checkQuotas(quotas);
+        Assertions.assertFalse(denied.allowed());
+        Assertions.assertEquals("block:ip", denied.quota().key());
+        Assertions.assertEquals(0, denied.remaining());
+        Assertions.assertTrue(denied.resetMillis() > 29_000);
+        Assertions.assertFalse(utils.checkQuotas(quotas).allowed());
+        // Denied requests leave the other quotas untouched
+        Assertions.assertEquals("2", utils.template.opsForValue().get(Const.FLOW_LIMIT_COUNTER + "block:user:w"));
+    }
+
+    @Test
+    void gcraAllowsABurstOfTheLimitThenOneRequestPerInterval() {
+        FlowUtils.Quota quota = new FlowUtils.Quota("gcra", 3, 60, 0, FlowUtils.Algorithm.GCRA);
+        for (int remaining = 2; remaining >= 0; remaining--) {
+            FlowUtils.Decision decision = utils.checkQuotas(List.of(quota));
+            Assertions.assertTrue(decision.allowed());
+            Assertions.assertEquals(remaining, decision.remaining());
+        }
+        FlowUtils.Decision denied = utils.checkQuotas(List.of(quota));
+        Assertions.assertFalse(denied.allowed());
+        // The next request is allowed once one emission interval (60s / 3) has passed
+        Assertions.assertTrue(denied.resetMillis() > 19_000 && denied.resetMillis() <= 20_000, "reset " + denied.resetMillis());
+        String state = utils.template.opsForValue().get(Const.FLOW_LIMIT_COUNTER + "gcra:g");
+        Assertions.assertNotNull(state);
+        Assertions.assertDoesNotThrow(() -> Double.parseDouble(state));
+    }
+
+    @Test
+    void slidingLogCountsEveryRequestOfThePeriod() {
+        Assertions.assertTrue(utils.limitCheck("log", 2, 60, FlowUtils.Algorithm.SLIDING_LOG));
+        Assertions.assertTrue(utils.limitCheck("log", 2, 60, FlowUtils.Algorithm.SLIDING_LOG));
+        Assertions.assertFalse(utils.limitCheck("log", 2, 60, FlowUtils.Algorithm.SLIDING_LOG));
+        Assertions.assertEquals(2L, utils.template.opsForZSet().zCard("log:l"));
+    }
+
+    @Test
+    void changingTheAlgorithmOfAKeyStartsItAfresh() {
+        // A counter left by an earlier fixed window configuration
+        utils.template.opsForValue().set("switched", "1");
+        Assertions.assertTrue(utils.limitCheck("switched", 1, 60, FlowUtils.Algorithm.FIXED_WINDOW));
+        Assertions.assertTrue(utils.limitCheck("switched", 1, 60, FlowUtils.Algorithm.SLIDING_LOG));
+        Assertions.assertTrue(utils.limitCheck("switched", 1, 60, FlowUtils.Algorithm.GCRA));
+        Assertions.assertFalse(utils.limitCheck("switched", 1, 60, FlowUtils.Algorithm.SLIDING_LOG));
+    }
+
+    @Test
+    void remembersBlocksInTheClientSideCache() {
+        FlowUtils cached = new FlowUtils();
+        cached.template = utils.template;
+        cached.keys = RedisKeys.text();
+        cached.tracking = new RedisTrackingCache(1000, 60_000);
+        cached.tracking.activate();
+        List<FlowUtils.Quota> quotas = List.of(new FlowUtils.Quota("cached", 1, 60, 30));
+        Assertions.assertTrue(cached.checkQuotas(quotas).allowed());
+        Assertions.assertFalse(cached.checkQuotas(quotas).allowed());
+        Assertions.assertNotNull(cached.tracking.get(Const.FLOW_LIMIT_BLOCK + "cached", ""));
+        // Served locally, even though the block is gone from Redis
+        cached.template.delete(Const.FLOW_LIMIT_BLOCK + "cached");
+        FlowUtils.Decision denied = cached.checkQuotas(quotas);
+        Assertions.assertFalse(denied.allowed());
+        Assertions.assertTrue(denied.resetMillis() > 29_000);
+        cached.tracking.invalidate(Const.FLOW_LIMIT_BLOCK + "cached");
+        Assertions.assertNull(cached.tracking.get(Const.FLOW_LIMIT_BLOCK + "cached", ""));
+    }
+
+    @Test
+    void failsOpenToLocalQuotasWhileTheCircuitIsOpen() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(1, 60_000);
+        FlowUtils offline = new FlowUtils();
+        offline.template = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()), breaker);
+        offline.keys = RedisKeys.text();
+        offline.tracking = new RedisTrackingCache(1000, 60_000);
+        breaker.onFailure();
+        List<FlowUtils.Quota> quotas = List.of(new FlowUtils.Quota("offline", 2, 60, 30, FlowUtils.Algorithm.GCRA));
+        Assertions.assertEquals(1, offline.checkQuotas(quotas).remaining());
+        Assertions.assertTrue(offline.checkQuotas(quotas).allowed());
+        FlowUtils.Decision denied = offline.checkQuotas(quotas);
+        Assertions.assertFalse(denied.allowed());
+        Assertions.assertEquals(30_000, denied.resetMillis());
+        Assertions.assertTrue(offline.limitOnceCheck("offline:once", 60));
+        Assertions.assertFalse(offline.limitOnceCheck("offline:once", 60));
+        // Nothing reached Redis
+        Assertions.assertNull(utils.template.opsForValue().get(Const.FLOW_LIMIT_COUNTER + "offline"));
+    }
+
+    @Test
+    void groupsAddressesByNetwork() {
+        Assertions.assertEquals("203.0.113.7/32", FlowUtils.network("203.0.113.7", 32, 64));
+        Assertions.assertEquals("203.0.113.0/24", FlowUtils.network("203.0.113.7", 24, 64));
+        Assertions.assertEquals("2001:db8:1:2:0:0:0:0/64", FlowUtils.network("2001:db8:1:2:aaaa:bbbb:cccc:dddd", 32, 64));
+        Assertions.assertEquals(FlowUtils.network("2001:db8:1:2::1", 32, 64), FlowUtils.network("2001:db8:1:2:ffff::9", 32, 64));
+        Assertions.assertEquals("unknown", FlowUtils.network("unknown", 32, 64));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.utils;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+class JwtUtilsTests {
+
+    static RedisServer redis;
+    static LettuceConnectionFactory factory;
+
+    @BeforeAll
+    static void start() throws IOException {
+        redis = RedisServer.newRedisServer();
+        redis.start();
+        factory = new LettuceConnectionFactory(redis.getHost(), redis.getBindPort());
+        factory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        factory.destroy();
+        redis.stop();
+    }
+
+    JwtUtils utils(RedisKeys keys, InstrumentedRedisTemplate template, RedisTrackingCache tracking) {
+        FlowUtils flow = new FlowUtils();
+        flow.template = template;
+        flow.keys = keys;
+        flow.tracking = tracking;
+        JwtUtils utils = new JwtUtils();
+        utils.template = template;
+        utils.utils = flow;
+        utils.keys = keys;
+        utils.tracking = tracking;
+        ReflectionTestUtils.setField(utils, "key", "abcdefghijklmn");
+        ReflectionTestUtils.setField(utils, "expire", 72);
+        ReflectionTestUtils.setField(utils, "limit_base", 10);
+        ReflectionTestUtils.setField(utils, "limit_upgrade", 300);
+        ReflectionTestUtils.setField(utils, "limit_frequency", 30);
+        return utils;
+    }
+
+    String header(JwtUtils utils, String username, int userId) {
+        return "Bearer " + utils.createJwt(User.withUsername(username).password("******").roles("user").build(), username, userId);
+    }
+
+    static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(20);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"text", "compact"})
+    void invalidatedTokensAreRejected(String layout) {
+        RedisKeys keys = RedisKeys.of(layout, 16);
+        InstrumentedRedisTemplate template = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()));
+        // Active, so a cached answer from before the invalidation must not be served
+        RedisTrackingCache tracking = new RedisTrackingCache(1000, 60_000);
+        tracking.activate();
+        JwtUtils utils = this.utils(keys, template, tracking);
+
+        String header = this.header(utils, layout, 1);
+        DecodedJWT jwt = utils.resolveJwt(header);
+        Assertions.assertNotNull(jwt);
+        Assertions.assertTrue(utils.invalidateJwt(header));
+        Assertions.assertNull(utils.resolveJwt(header));
+        Assertions.assertFalse(utils.invalidateJwt(header));
+        String key = keys.blacklist(jwt.getId(), jwt.getExpiresAt().getTime());
+        Assertions.assertEquals(keys.isCompact(), key.startsWith(Const.COMPACT_JWT_BLACK_LIST));
+        Assertions.assertTrue(template.getExpire(key) > 0);
+        Assertions.assertEquals(1, tracking.invalidations());
+    }
+
+    @Test
+    void blacklistSnapshotServesAnOutageAndIsWrittenBackAfterwards() throws InterruptedException {
+        RedisKeys keys = RedisKeys.text();
+        InstrumentedRedisTemplate direct = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()));
+        AtomicLong clock = new AtomicLong();
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(1, 1000, clock::get);
+        InstrumentedRedisTemplate template = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()), breaker);
+        JwtUtils utils = this.utils(keys, template, new RedisTrackingCache(1000, 60_000));
+        utils.breaker = breaker;
+        ReflectionTestUtils.setField(utils, "blacklist_refresh", 3600);
+
+        String legacy = this.header(utils, "legacy", 2);
+        String invalidated = this.header(utils, "invalidated", 3);
+        String valid = this.header(utils, "valid", 4);
+        DecodedJWT legacyJwt = utils.resolveJwt(legacy);
+        DecodedJWT invalidatedJwt = utils.resolveJwt(invalidated);
+        // Written before the value held the expiration time
+        direct.opsForValue().set(keys.blacklist(legacyJwt.getId(), legacyJwt.getExpiresAt().getTime()), "");
+        try {
+            utils.start();
+            @SuppressWarnings("unchecked")
+            Map<String, Long> snapshot = (Map<String, Long>) ReflectionTestUtils.getField(utils, "blacklist");
+            await(() -> snapshot.containsKey(legacyJwt.getId()), "The snapshot was not loaded");
+            Assertions.assertTrue(snapshot.get(legacyJwt.getId()) > System.currentTimeMillis());
+
+            breaker.onFailure();
+            Assertions.assertFalse(breaker.isClosed());
+            Assertions.assertNull(utils.resolveJwt(legacy), "Legacy blacklist entry not served from the snapshot");
+            Assertions.assertNotNull(utils.resolveJwt(valid));
+            Assertions.assertTrue(utils.invalidateJwt(invalidated));
+            Assertions.assertNull(utils.resolveJwt(invalidated));
+            String key = keys.blacklist(invalidatedJwt.getId(), invalidatedJwt.getExpiresAt().getTime());
+            Assertions.assertFalse(Boolean.TRUE.equals(direct.hasKey(key)));
+
+            // The probe after the open duration succeeds and closes the circuit
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            Assertions.assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+            Assertions.assertTrue(breaker.isClosed());
+            await(() -> Boolean.TRUE.equals(direct.hasKey(key)), "The token invalidated during the outage was not written back");
+            Assertions.assertEquals(String.valueOf(invalidatedJwt.getExpiresAt().getTime()), direct.opsForValue().get(key));
+            Assertions.assertNull(utils.resolveJwt(invalidated));
+        } finally {
+            utils.stop();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.utils;
+
+import com.example.entity.dto.LoginRecord;
+import com.example.mapper.LoginAuditMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class LoginAuditTests {
+
+    /**
+     * Keeps the statements instead of running them, can hold the writer back
+     */
+    static class RecordingMapper implements LoginAuditMapper {
+        final List<List<LoginRecord>> inserts = new ArrayList<>();
+        final List<List<LoginRecord>> upserts = new ArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean hold;
+        volatile boolean fail;
+
+        @Override
+        public synchronized int insertRecords(Collection<LoginRecord> records) {
+            try {
+                if(hold) release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            if(fail) throw new IllegalStateException("Database is down");
+            inserts.add(List.copyOf(records));
+            return records.size();
+        }
+
+        @Override
+        public synchronized int upsertLastLogins(Collection<LoginRecord> records) {
+            upserts.add(List.copyOf(records));
+            return records.size();
+        }
+    }
+
+    static LoginRecord login(Integer accountId, boolean success, long time) {
+        return new LoginRecord(accountId, "user" + accountId, "127.0.0.1", success, new Date(time));
+    }
+
+    @Test
+    void coalescesLastLoginsPerAccount() {
+        RecordingMapper mapper = new RecordingMapper();
+        LoginAudit audit = new LoginAudit(mapper, 100, 100);
+        audit.start(60_000);
+        audit.record(login(1, true, 1000));
+        audit.record(login(2, true, 1500));
+        audit.record(login(1, true, 3000));
+        audit.record(login(1, false, 4000));
+        audit.record(login(null, false, 5000));
+        audit.close();
+        Assertions.assertEquals(1, mapper.inserts.size());
+        Assertions.assertEquals(5, mapper.inserts.get(0).size());
+        Assertions.assertEquals(List.of(login(1, true, 3000), login(2, true, 1500)), mapper.upserts.get(0));
+        Assertions.assertEquals(5, audit.written());
+    }
+
+    @Test
+    void writesOnceABatchIsFull() throws InterruptedException {
+        RecordingMapper mapper = new RecordingMapper();
+        LoginAudit audit = new LoginAudit(mapper, 100, 3);
+        audit.start(60_000);
+        for (int i = 0; i < 3; i++) audit.record(login(i, true, i));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (audit.written() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        Assertions.assertEquals(3, audit.written());
+        Assertions.assertEquals(1, mapper.inserts.size());
+        audit.close();
+    }
+
+    @Test
+    void dropsWhenTheBufferIsFull() throws InterruptedException {
+        RecordingMapper mapper = new RecordingMapper();
+        mapper.hold = true;
+        LoginAudit audit = new LoginAudit(mapper, 4, 2);
+        audit.start(60_000);
+        // The first batch keeps the writer busy, the rest fills the buffer
+        audit.record(login(1, true, 1));
+        audit.record(login(2, true, 2));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (audit.pending() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        for (int i = 3; i <= 6; i++) Assertions.assertTrue(audit.record(login(i, true, i)));
+        Assertions.assertFalse(audit.record(login(7, true, 7)));
+        Assertions.assertEquals(1, audit.dropped());
+        mapper.release.countDown();
+        audit.close();
+        Assertions.assertEquals(6, audit.written());
+        Assertions.assertEquals(0, audit.pending());
+    }
+
+    @Test
+    void countsFailedBatches() {
+        RecordingMapper mapper = new RecordingMapper();
+        mapper.fail = true;
+        LoginAudit audit = new LoginAudit(mapper, 100, 2);
+        audit.start(60_000);
+        for (int i = 0; i < 3; i++) audit.record(login(i, true, i));
+        audit.close();
+        Assertions.assertEquals(3, audit.failed());
+        Assertions.assertEquals(0, audit.written());
+        Assertions.assertFalse(audit.record(login(4, true, 4)));
+    }
+}
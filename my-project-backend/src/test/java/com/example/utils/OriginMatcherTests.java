@@ -0,0 +1,31 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class OriginMatcherTests {
+
+    @Test
+    void matchesExactSuffixAndPatternEntries() {
+        OriginMatcher matcher = OriginMatcher.compile("https://www.example.com, *.example.org, http://localhost:*");
+        Assertions.assertFalse(matcher.matchesAny());
+        Assertions.assertTrue(matcher.matches("https://www.example.com"));
+        Assertions.assertTrue(matcher.matches("HTTPS://WWW.EXAMPLE.COM"));
+        Assertions.assertFalse(matcher.matches("https://www.example.com.evil.net"));
+        Assertions.assertTrue(matcher.matches("https://app.example.org"));
+        Assertions.assertTrue(matcher.matches("http://a.b.example.org"));
+        Assertions.assertFalse(matcher.matches("https://example.org.evil.net"));
+        Assertions.assertFalse(matcher.matches("https://evilexample.org"));
+        Assertions.assertTrue(matcher.matches("http://localhost:5173"));
+        Assertions.assertFalse(matcher.matches("http://localhost:5173/x"));
+        Assertions.assertFalse(matcher.matches("https://localhost:5173"));
+        Assertions.assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void wildcardMatchesEverything() {
+        OriginMatcher matcher = OriginMatcher.compile("*");
+        Assertions.assertTrue(matcher.matchesAny());
+        Assertions.assertTrue(matcher.matches("https://anything.test"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.utils;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class RedisCircuitBreakerTests {
+
+    final AtomicLong clock = new AtomicLong();
+    final RedisCircuitBreaker breaker = new RedisCircuitBreaker(3, 1000, clock::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        Assertions.assertTrue(breaker.isClosed());
+        breaker.onFailure();
+        Assertions.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.state());
+        Assertions.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterTheOpenDuration() {
+        List<String> transitions = new ArrayList<>();
+        breaker.onTransition((from, to) -> transitions.add(from + ">" + to));
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        Assertions.assertFalse(breaker.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertTrue(breaker.tryAcquire());
+        Assertions.assertFalse(breaker.tryAcquire());
+        // A failed probe opens the circuit for another period
+        breaker.onFailure();
+        Assertions.assertFalse(breaker.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        Assertions.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        Assertions.assertTrue(breaker.isClosed());
+        Assertions.assertEquals(List.of("CLOSED>OPEN", "OPEN>HALF_OPEN", "HALF_OPEN>OPEN", "OPEN>HALF_OPEN", "HALF_OPEN>CLOSED"), transitions);
+    }
+
+    @Test
+    void errorRepliesAreNoOutage() {
+        Assertions.assertTrue(RedisCircuitBreaker.isOutage(new RedisConnectionFailureException("down")));
+        Assertions.assertTrue(RedisCircuitBreaker.isOutage(new QueryTimeoutException("timeout")));
+        Assertions.assertTrue(RedisCircuitBreaker.isOutage(new RedisSystemException("rejected", new RedisException("Currently not connected"))));
+        Assertions.assertFalse(RedisCircuitBreaker.isOutage(new RedisSystemException("script", new RedisCommandExecutionException("ERR"))));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.utils;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RedisCommandMetricsTests {
+
+    @Test
+    void timesEveryCommandAndAttributesASampleToItsCaller() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RedisCommandMetrics metrics = new RedisCommandMetrics(registry);
+        int commands = RedisCommandMetrics.CALLER_SAMPLE_RATE * 100;
+        for (int i = 0; i < commands; i++) metrics.record(1000);
+        Assertions.assertEquals(commands, registry.get("redis.commands").timer().count());
+        Timer sampled = registry.get("redis.commands.sampled")
+                .tag("caller", "RedisCommandMetricsTests.timesEveryCommandAndAttributesASampleToItsCaller")
+                .timer();
+        Assertions.assertTrue(sampled.count() > 0 && sampled.count() < commands / 8, "sampled " + sampled.count());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+class RedisKeysTests {
+
+    @Test
+    void textLayoutKeepsTheDescriptivePrefixes() {
+        RedisKeys keys = RedisKeys.of("text", 256);
+        Assertions.assertEquals("flow:counter:ip:10.0.0.1/32", keys.flowCounter("ip:10.0.0.1/32"));
+        Assertions.assertEquals("verify:email:data:a@b.c", keys.verifyData("a@b.c"));
+        Assertions.assertEquals("jwt:blacklist:" + UUID.nameUUIDFromBytes(new byte[0]),
+                keys.blacklist(UUID.nameUUIDFromBytes(new byte[0]).toString(), 0));
+    }
+
+    @Test
+    void compactLayoutBucketsTheBlacklistByHour() {
+        RedisKeys keys = RedisKeys.of("compact", 100);
+        Assertions.assertEquals("f:c:ip:10.0.0.1/32", keys.flowCounter("ip:10.0.0.1/32"));
+        String uuid = new UUID(1, 0x1234_5678_9abcL).toString();
+        long expiresAt = 5 * 3_600_000L + 42;
+        // 100 buckets are rounded up to 128
+        String key = keys.blacklist(uuid, expiresAt);
+        Assertions.assertEquals("j:b:5:" + (0x9abc & 127), key);
+        Assertions.assertEquals(6 * 3_600_000L, RedisKeys.blacklistExpiration(key));
+        Assertions.assertEquals(16, RedisKeys.tokenId(uuid).length);
+        Assertions.assertEquals(uuid, RedisKeys.tokenId(RedisKeys.tokenId(uuid)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RedisKeys.of("binary", 1));
+    }
+}
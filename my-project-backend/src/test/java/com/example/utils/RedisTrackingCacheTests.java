@@ -0,0 +1,125 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class RedisTrackingCacheTests {
+
+    final AtomicLong now = new AtomicLong(1_000_000);
+    final AtomicInteger loads = new AtomicInteger();
+
+    RedisTrackingCache active() {
+        RedisTrackingCache cache = new RedisTrackingCache(100, 60_000, now::get);
+        cache.activate();
+        return cache;
+    }
+
+    boolean load(RedisTrackingCache cache, String key, boolean value) {
+        return cache.exists(key, "", Long.MAX_VALUE, () -> {
+            loads.incrementAndGet();
+            return value;
+        });
+    }
+
+    @Test
+    void servesRepeatedReadsUntilInvalidated() {
+        RedisTrackingCache cache = this.active();
+        Assertions.assertFalse(this.load(cache, "jwt:blacklist:a", false));
+        Assertions.assertFalse(this.load(cache, "jwt:blacklist:a", true));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.hits());
+        Assertions.assertEquals(1, cache.misses());
+        cache.invalidate("jwt:blacklist:a");
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertTrue(this.load(cache, "jwt:blacklist:a", true));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void doesNotCacheReadsRacingAnInvalidation() {
+        RedisTrackingCache cache = this.active();
+        Assertions.assertFalse(cache.exists("jwt:blacklist:a", "", Long.MAX_VALUE, () -> {
+            cache.invalidate("jwt:blacklist:a");
+            return false;
+        }));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertNull(cache.get("jwt:blacklist:a", ""));
+    }
+
+    @Test
+    void expiresEntriesAfterTheMaxAge() {
+        RedisTrackingCache cache = this.active();
+        this.load(cache, "jwt:blacklist:a", false);
+        cache.put("flow:block:b", "", true, now.get() + 10_000, cache.generation("flow:block:b"));
+        Assertions.assertNotNull(cache.get("flow:block:b", ""));
+        now.addAndGet(10_000);
+        Assertions.assertNull(cache.get("flow:block:b", ""));
+        Assertions.assertNotNull(cache.get("jwt:blacklist:a", ""));
+        now.addAndGet(50_000);
+        Assertions.assertNull(cache.get("jwt:blacklist:a", ""));
+    }
+
+    @Test
+    void fullCacheMakesRoomForNewEntries() {
+        RedisTrackingCache cache = this.active();
+        for (int i = 0; i < 100; i++) this.load(cache, "jwt:blacklist:" + i, false);
+        now.addAndGet(1);
+        // Nothing has expired, an arbitrary key is evicted instead
+        Assertions.assertFalse(this.load(cache, "jwt:blacklist:new", false));
+        Assertions.assertNotNull(cache.get("jwt:blacklist:new", ""));
+        Assertions.assertEquals(100, cache.size());
+        // Once the entries have expired, the next purge drops them all
+        now.addAndGet(60_000);
+        this.load(cache, "jwt:blacklist:later", false);
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void isBypassedWhileTrackingIsOff() {
+        RedisTrackingCache cache = this.active();
+        this.load(cache, "jwt:blacklist:a", false);
+        cache.deactivate();
+        Assertions.assertEquals(0, cache.size());
+        this.load(cache, "jwt:blacklist:a", false);
+        this.load(cache, "jwt:blacklist:a", false);
+        Assertions.assertEquals(3, loads.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void sizeFollowsTheEntriesUnderConcurrentWrites() throws InterruptedException {
+        RedisTrackingCache cache = new RedisTrackingCache(64, 60_000, now::get);
+        cache.activate();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < 20_000; j++) {
+                    String key = "k" + random.nextInt(16);
+                    if(random.nextInt(4) == 0) {
+                        cache.invalidate(key);
+                    } else {
+                        // Short-lived entries, so a full cache purges while others write
+                        long expiresAt = now.get() + random.nextInt(1, 3);
+                        cache.put(key, "f" + random.nextInt(8), true, expiresAt, cache.generation(key));
+                        if(j % 100 == 0) now.incrementAndGet();
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        for (int i = 0; i < 16; i++) cache.invalidate("k" + i);
+        Assertions.assertEquals(0, cache.size());
+        // Still caching, the count did not creep up to the capacity
+        cache.put("k0", "", true, now.get() + 1000, cache.generation("k0"));
+        Assertions.assertNotNull(cache.get("k0", ""));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+class ReplicaRoutingDataSourceTests {
+
+    static DataSource primary;
+    static DataSource replica;
+
+    @BeforeAll
+    static void start() {
+        primary = database("primary");
+        replica = database("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replication(lag DOUBLE)");
+    }
+
+    static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node(name VARCHAR(16))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    static String node(ReplicaRoutingDataSource routing) {
+        return new JdbcTemplate(routing).queryForObject("SELECT name FROM node", String.class);
+    }
+
+    @Test
+    void sendsMarkedReadsToTheReplica() {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+                List.of(new ReplicaRoutingDataSource.Replica("replica-1", replica)), 2000, null);
+        Assertions.assertEquals("primary", node(routing));
+        Assertions.assertEquals("replica", ReplicaRoutingDataSource.onReplica(() -> node(routing)));
+        Assertions.assertEquals("primary", node(routing));
+        Assertions.assertEquals(2, routing.primaryConnections());
+        Assertions.assertEquals(1, routing.replicaConnections());
+    }
+
+    @Test
+    void routesConnectionsWithCredentialsTheSameWay() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+                List.of(new ReplicaRoutingDataSource.Replica("replica-1", replica)), 2000, null);
+        try (Connection connection = routing.getConnection("sa", "")) {
+            Assertions.assertTrue(connection.getMetaData().getURL().contains("primary"));
+        }
+        ReplicaRoutingDataSource.onReplica(() -> {
+            try (Connection connection = routing.getConnection("sa", "")) {
+                Assertions.assertTrue(connection.getMetaData().getURL().contains("replica"));
+                return null;
+            } catch (SQLException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+        Assertions.assertEquals(1, routing.replicaConnections());
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhileTheReplicaLags() {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+                List.of(new ReplicaRoutingDataSource.Replica("replica-1", replica)), 2000, "SELECT lag FROM replication");
+        JdbcTemplate jdbc = new JdbcTemplate(replica);
+        routing.checkReplicas();
+        Assertions.assertFalse(routing.replicas().get(0).isUp(), "No row means replication is not running");
+        jdbc.update("INSERT INTO replication VALUES (5)");
+        routing.checkReplicas();
+        Assertions.assertEquals(5000, routing.replicas().get(0).lagMillis());
+        Assertions.assertEquals("primary", ReplicaRoutingDataSource.onReplica(() -> node(routing)));
+        Assertions.assertEquals(1, routing.fallbackConnections());
+        jdbc.update("UPDATE replication SET lag = 0.5");
+        routing.checkReplicas();
+        Assertions.assertEquals("replica", ReplicaRoutingDataSource.onReplica(() -> node(routing)));
+        jdbc.update("DELETE FROM replication");
+    }
+
+    @Test
+    void skipsReplicasThatDoNotAnswer() {
+        DataSource missing = new DriverManagerDataSource("jdbc:h2:mem:missing;IFEXISTS=TRUE", "sa", "");
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(
+                new ReplicaRoutingDataSource.Replica("replica-1", missing),
+                new ReplicaRoutingDataSource.Replica("replica-2", replica)), 2000, null);
+        Assertions.assertEquals("replica", ReplicaRoutingDataSource.onReplica(() -> node(routing)));
+        Assertions.assertEquals("replica", ReplicaRoutingDataSource.onReplica(() -> node(routing)));
+        Assertions.assertFalse(routing.replicas().get(0).isUp());
+        routing.checkReplicas();
+        Assertions.assertFalse(routing.replicas().get(0).isUp());
+        Assertions.assertTrue(routing.replicas().get(1).isUp());
+    }
+}
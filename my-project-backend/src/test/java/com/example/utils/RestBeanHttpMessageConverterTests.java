@@ -0,0 +1,39 @@
+package com.example.utils;
+
+import com.example.entity.RestBean;
+import com.example.entity.vo.response.AuthorizeVO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.Date;
+
+class RestBeanHttpMessageConverterTests {
+
+    private final RestBeanHttpMessageConverter converter = new RestBeanHttpMessageConverter();
+
+    @Test
+    void writesSameBodyAsJsonString() throws IOException {
+        AuthorizeVO vo = new AuthorizeVO();
+        vo.setUsername("test");
+        vo.setRole("user");
+        vo.setToken("token");
+        vo.setExpire(new Date(1700000000000L));
+        for (RestBean<?> bean : new RestBean<?>[]{
+                new RestBean<>(1, 200, vo, "Request successful"),
+                new RestBean<>(2, 400, null, "Invalid request parameters")}) {
+            MockHttpOutputMessage message = new MockHttpOutputMessage();
+            converter.write(bean, MediaType.APPLICATION_JSON, message);
+            Assertions.assertEquals(bean.asJsonString(), message.getBodyAsString());
+        }
+    }
+
+    @Test
+    void onlyWritesRestBean() {
+        Assertions.assertTrue(converter.canWrite(RestBean.class, MediaType.APPLICATION_JSON));
+        Assertions.assertFalse(converter.canRead(RestBean.class, MediaType.APPLICATION_JSON));
+        Assertions.assertFalse(converter.canWrite(String.class, MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RouteQuotasTests {
+
+    @Test
+    void exactPathsWinOverTheLongestPrefix() {
+        RouteQuotas quotas = RouteQuotas.compile("/api/**=100/10, /api/auth/**=20/10 gcra, /api/auth/login=5/60/300");
+        RouteQuotas.Rule login = quotas.find("/api/auth/login");
+        Assertions.assertEquals(new RouteQuotas.Rule("/api/auth/login", "/api/auth/login", 5, 60, 300, null), login);
+        Assertions.assertEquals(FlowUtils.Algorithm.GCRA, quotas.find("/api/auth/ask-code").algorithm());
+        Assertions.assertEquals("/api/auth/**", quotas.find("/api/auth/ask-code").route());
+        Assertions.assertEquals(0, quotas.find("/api/auth/ask-code").block());
+        Assertions.assertEquals("/api/**", quotas.find("/api/user").route());
+        Assertions.assertNull(quotas.find("/actuator/health"));
+    }
+
+    @Test
+    void emptyConfigurationHasNoOverrides() {
+        Assertions.assertNull(RouteQuotas.compile("").find("/api/auth/login"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RouteQuotas.compile("/api/auth/login=5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RouteQuotas.compile("/api/auth/login=5/60 leaky"));
+    }
+}
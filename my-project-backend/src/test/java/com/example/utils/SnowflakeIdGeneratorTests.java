@@ -0,0 +1,88 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTests {
+
+    @Test
+    void concurrentIdsAreUnique() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            pool.execute(() -> {
+                for (int j = 0; j < 20000; j++) ids.add(generator.nextId());
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(8 * 20000, ids.size());
+    }
+
+    @Test
+    void reservedBlockIsContiguous() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        SnowflakeIdGenerator.IdBlock block = generator.reserve(100);
+        assertTrue(block.count() >= 1 && block.count() <= 100);
+        assertEquals(block.first() + block.count() - 1, block.get(block.count() - 1));
+        assertTrue(generator.nextId() > block.get(block.count() - 1));
+    }
+
+    @Test
+    void batchAndBufferedIdsAreUniqueAndIncreasing() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        long[] ids = generator.nextIds(10000);
+        for (int i = 1; i < ids.length; i++) assertTrue(ids[i] > ids[i - 1]);
+        long last = ids[ids.length - 1];
+        for (int i = 0; i < 1000; i++) {
+            long id = generator.nextBufferedId();
+            assertTrue(id > last);
+            last = id;
+        }
+    }
+
+    @Test
+    void reassignedGeneratorIssuesIdsOfTheNewNode() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1);
+        assertEquals((1 << 5) | 1, (generator.nextBufferedId() >> 12) & 1023);
+        generator.reassign(3, 7);
+        // The rest of the block buffered for the old node is dropped
+        assertEquals((3 << 5) | 7, (generator.nextBufferedId() >> 12) & 1023);
+        assertEquals((3 << 5) | 7, (generator.nextId() >> 12) & 1023);
+        assertEquals((3 << 5) | 7, (generator.reserve(8).first() >> 12) & 1023);
+    }
+
+    @Test
+    void smallBackwardStepKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1, clock::get);
+        long last = generator.nextId();
+        clock.addAndGet(-5);
+        // Enough IDs to run out of the sequence and borrow the following milliseconds
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+    }
+
+    @Test
+    void largeBackwardStepIsRefusedOnceSequenceRunsOut() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 1, clock::get);
+        generator.nextId();
+        clock.addAndGet(-10000);
+        assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 5000; i++) generator.nextId();
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.utils;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class WorkerIdLeaseTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void movesFromTheLockFileToRedisOnceItIsReachable() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(1)).build());
+        factory.afterPropertiesSet();
+        RedisServer redis = RedisServer.newRedisServer(port);
+        WorkerIdLease lease = new WorkerIdLease();
+        lease.template = new InstrumentedRedisTemplate(factory, new RedisCommandMetrics(new SimpleMeterRegistry()));
+        lease.ttl = 30;
+        lease.directory = directory.toString();
+        try {
+            lease.acquire();
+            Assertions.assertEquals(0, lease.nodeId());
+            AtomicLong assigned = new AtomicLong(-1);
+            lease.onReassign(assigned::set);
+            Assertions.assertEquals(0, assigned.get());
+            // Still unreachable, the lock file is kept
+            lease.heartbeat();
+            Assertions.assertEquals(0, lease.nodeId());
+            redis.start();
+            lease.heartbeat();
+            Assertions.assertEquals(lease.nodeId(), assigned.get());
+            Assertions.assertNotNull(lease.template.opsForValue().get(Const.SNOWFLAKE_WORKER + lease.nodeId()));
+            // The lock file is free for the next instance on this host
+            try (FileChannel channel = FileChannel.open(directory.resolve("worker-0.lock"), StandardOpenOption.WRITE)) {
+                Assertions.assertNotNull(channel.tryLock());
+            }
+        } finally {
+            lease.release();
+            factory.destroy();
+            redis.stop();
+        }
+    }
+}